@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark once per thread count. Thread counts default to 1, 4
+ * and 16 and can be changed with -Dbenchmark.threads=1,8. Any other argument is
+ * passed to JMH, e.g. -p capacity=1000 or a benchmark name regex.
+ * 
+ * @author vaibhav
+ */
+public class BenchmarkRunner
+{
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException
+	{
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		for (String threads : System.getProperty("benchmark.threads", "1,4,16").split(","))
+		{
+			Options options = new OptionsBuilder().parent(commandLineOptions).threads(Integer.parseInt(threads))
+					.build();
+			new Runner(options).run();
+		}
+	}
+}
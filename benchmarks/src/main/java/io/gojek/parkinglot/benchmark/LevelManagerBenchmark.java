@@ -0,0 +1,108 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.gojek.parkinglot.dao.impl.MemoryParkingLevelManager;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.strategy.BitmapNearestFirstParkingStrategy;
+
+/**
+ * Benchmarks of the level manager on a half full level. Colours are spread
+ * over {@link #COLORS} so colour queries return capacity / 16 rows.
+ * 
+ * @author vaibhav
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LevelManagerBenchmark
+{
+	static final String[] COLORS = { "White", "Black", "Red", "Blue", "Grey", "Silver", "Green", "Yellow" };
+	
+	@Param({ "1000", "10000", "100000", "1000000" })
+	int capacity;
+	
+	MemoryParkingLevelManager<Car>	levelManager;
+	private final AtomicInteger		threadIds	= new AtomicInteger();
+	
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		levelManager = new MemoryParkingLevelManager<>(1, capacity,
+				new BitmapNearestFirstParkingStrategy(capacity));
+		for (int i = 0; i < capacity / 2; i++)
+			levelManager.parkCar(new Car(registrationNo(i), COLORS[i % COLORS.length]));
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		levelManager.doCleanUp();
+	}
+	
+	static String registrationNo(int i)
+	{
+		return "KA-01-" + i;
+	}
+	
+	@State(Scope.Thread)
+	public static class ThreadState
+	{
+		Car car;
+		
+		@Setup(Level.Trial)
+		public void setUp(LevelManagerBenchmark benchmark)
+		{
+			car = new Car("GATE-" + benchmark.threadIds.incrementAndGet(), "White");
+		}
+	}
+	
+	@Benchmark
+	public boolean parkAndLeave(ThreadState state)
+	{
+		int slot = levelManager.parkCar(state.car);
+		return slot > 0 && levelManager.leaveCar(slot);
+	}
+	
+	@Benchmark
+	public int getSlotNoFromRegistrationNo()
+	{
+		return levelManager
+				.getSlotNoFromRegistrationNo(registrationNo(ThreadLocalRandom.current().nextInt(capacity)));
+	}
+	
+	@Benchmark
+	public List<Integer> getSlotNumbersFromColor()
+	{
+		return levelManager.getSlotNumbersFromColor(COLORS[ThreadLocalRandom.current().nextInt(COLORS.length)]);
+	}
+	
+	@Benchmark
+	public List<String> getRegNumberForColor()
+	{
+		return levelManager.getRegNumberForColor(COLORS[ThreadLocalRandom.current().nextInt(COLORS.length)]);
+	}
+}
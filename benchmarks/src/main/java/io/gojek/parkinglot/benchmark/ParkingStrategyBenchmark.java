@@ -0,0 +1,71 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.gojek.parkinglot.model.strategy.BitmapNearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.NearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.ParkingStrategy;
+
+/**
+ * Compares the TreeSet and bitmap nearest first strategies on a half full
+ * level whose lower half is taken, so that every search for the nearest free
+ * slot has to get past the occupied half
+ * 
+ * @author vaibhav
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParkingStrategyBenchmark
+{
+	@Param({ "1000", "10000", "100000", "1000000" })
+	int capacity;
+	
+	@Param({ "treeset", "bitmap" })
+	String strategyType;
+	
+	ParkingStrategy strategy;
+	
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		strategy = "bitmap".equals(strategyType) ? new BitmapNearestFirstParkingStrategy(capacity)
+				: new NearestFirstParkingStrategy();
+		for (int i = capacity / 2; i <= capacity; i++)
+			strategy.add(i);
+	}
+	
+	@Benchmark
+	public int getSlot()
+	{
+		return strategy.getSlot();
+	}
+	
+	@Benchmark
+	public int claimAndAdd()
+	{
+		int slot = strategy.claimSlot();
+		if (slot > 0)
+			strategy.add(slot);
+		return slot;
+	}
+}
@@ -2,15 +2,36 @@ package io.gojek.parkinglot;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import io.gojek.parkinglot.dao.impl.OffHeapParkingLevelManager;
 import io.gojek.parkinglot.exception.ErrorCode;
 import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.input.MappedCommandReader;
+import io.gojek.parkinglot.metrics.ParkingMetrics;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.output.BufferedResultWriter;
+import io.gojek.parkinglot.output.CapturingResultWriter;
+import io.gojek.parkinglot.output.ConsoleResultWriter;
+import io.gojek.parkinglot.output.ResultWriter;
 import io.gojek.parkinglot.processor.AbstractProcessor;
+import io.gojek.parkinglot.processor.Command;
+import io.gojek.parkinglot.processor.ParallelCommandReplayer;
 import io.gojek.parkinglot.processor.RequestProcessor;
+import io.gojek.parkinglot.server.ParkingServer;
 import io.gojek.parkinglot.service.impl.ParkingServiceImpl;
+import io.gojek.parkinglot.wal.SnapshotStore;
+import io.gojek.parkinglot.wal.WriteAheadLog;
 
 /**
  * Hello world!
@@ -21,11 +42,29 @@ public class Main
 	public static void main(String[] args)
 	{
 		AbstractProcessor processor = new RequestProcessor();
-		processor.setService(new ParkingServiceImpl());
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		processor.setService(parkingService);
+		registerMetrics(parkingService.getMetrics());
 		BufferedReader bufferReader = null;
 		String input = null;
+		// reused for every line so that each input is tokenized only once
+		Command command = new Command();
+		WriteAheadLog writeAheadLog = null;
 		try
 		{
+			// -Dparkinglot.offheap=true keeps the parked vehicles off the heap
+			if (Boolean.getBoolean("parkinglot.offheap"))
+				parkingService.setLevelManagerFactory((level, capacity, parkingStrategy, colorDictionary) ->
+						new OffHeapParkingLevelManager<>(level, capacity, parkingStrategy, Car::new, colorDictionary));
+			// -Dparkinglot.wal=<directory> keeps the lot across restarts
+			String walPath = System.getProperty("parkinglot.wal");
+			if (walPath != null)
+			{
+				writeAheadLog = openWriteAheadLog(walPath);
+				SnapshotStore snapshots = openSnapshotStore(walPath);
+				parkingService.recover(snapshots, writeAheadLog);
+				scheduleSnapshots(parkingService, snapshots);
+			}
 			System.out.println("\n\n\n\n\n");
 			System.out.println("===================================================================");
 			System.out.println("===================      GOJEK PARKING LOT     ====================");
@@ -49,11 +88,12 @@ public class Main
 							}
 							else
 							{
-								if (processor.validate(input))
+								command.load(input);
+								if (processor.validate(command))
 								{
 									try
 									{
-										processor.execute(input.trim());
+										processor.execute(command);
 									}
 									catch (Exception e)
 									{
@@ -76,37 +116,73 @@ public class Main
 				case 1:// File input/output
 				{
 					File inputFile = new File(args[0]);
-					try
+					// results are printed in batches, errors go through the same
+					// writer to keep their order
+					ResultWriter resultWriter = new BufferedResultWriter(System.out);
+					parkingService.setResultWriter(resultWriter);
+					// one command object is reused for every line of the file
+					try (MappedCommandReader commandReader = new MappedCommandReader(inputFile.toPath()))
 					{
-						bufferReader = new BufferedReader(new FileReader(inputFile));
-						int lineNo = 1;
-						while ((input = bufferReader.readLine()) != null)
+						while (commandReader.next(command))
 						{
-							input = input.trim();
-							if (processor.validate(input))
+							if (processor.validate(command))
 							{
 								try
 								{
-									processor.execute(input);
+									processor.execute(command);
 								}
 								catch (Exception e)
 								{
-									System.out.println(e.getMessage());
+									resultWriter.write(e.getMessage());
 								}
 							}
 							else
-								System.out.println("Incorrect Command Found at line: " + lineNo + " ,Input: " + input);
-							lineNo++;
+								resultWriter.write("Incorrect Command Found at line: " + commandReader.getLineNo()
+										+ " ,Input: " + command);
 						}
 					}
 					catch (Exception e)
 					{
 						throw new ParkingException(ErrorCode.INVALID_FILE.getMessage(), e);
 					}
+					finally
+					{
+						resultWriter.flush();
+					}
+					break;
+				}
+				case 2:// File input/output replayed in parallel by level, or server
+				{
+					if ("--server".equals(args[0]))
+					{
+						serve(processor, parkingService, args[1]);
+						break;
+					}
+					if (!"--parallel".equals(args[0]))
+					{
+						printInvalidInput();
+						break;
+					}
+					File inputFile = new File(args[1]);
+					ResultWriter resultWriter = new BufferedResultWriter(System.out);
+					CapturingResultWriter capturingWriter = new CapturingResultWriter(resultWriter);
+					parkingService.setResultWriter(capturingWriter);
+					try (MappedCommandReader commandReader = new MappedCommandReader(inputFile.toPath()))
+					{
+						new ParallelCommandReplayer(processor, capturingWriter, resultWriter).replay(commandReader);
+					}
+					catch (Exception e)
+					{
+						throw new ParkingException(ErrorCode.INVALID_FILE.getMessage(), e);
+					}
+					finally
+					{
+						resultWriter.flush();
+					}
 					break;
 				}
 				default:
-					System.out.println("Invalid input. Usage Style: java -jar <jar_file_path> <input_file_path>");
+					printInvalidInput();
 			}
 		}
 		catch (ParkingException e)
@@ -120,6 +196,8 @@ public class Main
 			{
 				if (bufferReader != null)
 					bufferReader.close();
+				if (writeAheadLog != null)
+					writeAheadLog.close();
 			}
 			catch (IOException e)
 			{
@@ -127,6 +205,108 @@ public class Main
 		}
 	}
 	
+	private static SnapshotStore openSnapshotStore(String path) throws ParkingException
+	{
+		try
+		{
+			return new SnapshotStore(Paths.get(path));
+		}
+		catch (IOException e)
+		{
+			throw new ParkingException(ErrorCode.INVALID_FILE.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Exposes the metrics to JMX clients such as jconsole, the stats command
+	 * works without it
+	 */
+	private static void registerMetrics(ParkingMetrics metrics)
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+					new ObjectName(ParkingMetrics.OBJECT_NAME));
+		}
+		catch (JMException e)
+		{
+			System.out.println("Metrics are not available through JMX: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Snapshots are written in the background every
+	 * -Dparkinglot.snapshot.interval seconds, 60 by default, 0 or less turns
+	 * them off and the log then keeps growing
+	 */
+	private static void scheduleSnapshots(ParkingServiceImpl parkingService, SnapshotStore snapshots)
+	{
+		long interval = Long.getLong("parkinglot.snapshot.interval", 60);
+		if (interval <= 0)
+			return;
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try
+			{
+				parkingService.checkpoint(snapshots);
+			}
+			catch (ParkingException e)
+			{
+				System.err.println(e.getMessage());
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Mutations wait for the fsync unless -Dparkinglot.wal.sync=false
+	 */
+	private static WriteAheadLog openWriteAheadLog(String path) throws ParkingException
+	{
+		try
+		{
+			return new WriteAheadLog(Paths.get(path), !"false".equals(System.getProperty("parkinglot.wal.sync")));
+		}
+		catch (IOException e)
+		{
+			throw new ParkingException(ErrorCode.INVALID_FILE.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Serves the commands of gate connections on the port until the process is
+	 * stopped
+	 */
+	private static void serve(AbstractProcessor processor, ParkingServiceImpl parkingService, String port)
+			throws ParkingException
+	{
+		CapturingResultWriter capturingWriter = new CapturingResultWriter(new ConsoleResultWriter());
+		parkingService.setResultWriter(capturingWriter);
+		try (ParkingServer server = new ParkingServer(processor, capturingWriter,
+				new InetSocketAddress(Integer.parseInt(port))))
+		{
+			System.out.println("Listening on port " + server.getPort());
+			server.run();
+		}
+		catch (NumberFormatException e)
+		{
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "port"));
+		}
+		catch (IOException e)
+		{
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+		}
+	}
+	
+	private static void printInvalidInput()
+	{
+		System.out.println(
+				"Invalid input. Usage Style: java -jar <jar_file_path> [--parallel] <input_file_path> | --server <port>");
+	}
+	
 	private static void printUsage()
 	{
 		StringBuffer buffer = new StringBuffer();
@@ -135,12 +315,17 @@ public class Main
 				.append("\n");
 		buffer = buffer.append("A) For creating parking lot of size n               ---> create_parking_lot {capacity}")
 				.append("\n");
+		buffer = buffer.append(
+				"   For creating parking lot with levels             ---> create_parking_lot {capacity},{capacity},...")
+				.append("\n");
 		buffer = buffer
 				.append("B) To park a car                                    ---> park <<car_number>> {car_clour}")
 				.append("\n");
 		buffer = buffer.append("C) Remove(Unpark) car from parking                  ---> leave {slot_number}")
 				.append("\n");
 		buffer = buffer.append("D) Print status of parking slot                     ---> status").append("\n");
+		buffer = buffer.append("   Print status one page at a time                  ---> status from={slot} limit={n}")
+				.append("\n");
 		buffer = buffer.append(
 				"E) Get cars registration no for the given car color ---> registration_numbers_for_cars_with_color {car_color}")
 				.append("\n");
@@ -150,6 +335,14 @@ public class Main
 		buffer = buffer.append(
 				"G) Get slot number for the given car number         ---> slot_number_for_registration_number {car_number}")
 				.append("\n");
+		buffer = buffer.append("H) Print operation counts, latencies and occupancy ---> stats").append("\n");
+		buffer = buffer.append("I) Get free slots of the lot or of a level          ---> free_slots {level}")
+				.append("\n");
+		buffer = buffer.append("J) Print free slots per level and cars per color    ---> occupancy").append("\n");
+		buffer = buffer.append(
+				"{level} can be added at the end of B) to G) and I). Without it B) chooses the level, C) to G) use level 1"
+						+ " and I) counts the whole lot")
+				.append("\n");
 		System.out.println(buffer.toString());
 	}
 }
@@ -4,7 +4,9 @@
 package io.gojek.parkinglot.constants;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author vaibhav
@@ -12,17 +14,19 @@ import java.util.Map;
  */
 public class CommandInputMap
 {
-	private static volatile Map<String, Integer> commandsParameterMap = new HashMap<String, Integer>();
+	private static volatile Map<String, Integer>	commandsParameterMap	= new HashMap<String, Integer>();
+	// commands which take the parking level as an optional last parameter
+	private static volatile Set<String>			levelCommands			= new HashSet<String>();
 	
+	// built from the Opcode arity table used by the processor
 	static
 	{
-		commandsParameterMap.put(Constants.CREATE_PARKING_LOT, 1);
-		commandsParameterMap.put(Constants.PARK, 2);
-		commandsParameterMap.put(Constants.LEAVE, 1);
-		commandsParameterMap.put(Constants.STATUS, 0);
-		commandsParameterMap.put(Constants.REG_NUMBER_FOR_CARS_WITH_COLOR, 1);
-		commandsParameterMap.put(Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR, 1);
-		commandsParameterMap.put(Constants.SLOTS_NUMBER_FOR_REG_NUMBER, 1);
+		for (Opcode opcode : Opcode.values())
+		{
+			commandsParameterMap.put(opcode.getCommand(), opcode.getParameterCount());
+			if (opcode.isLevelOptional())
+				levelCommands.add(opcode.getCommand());
+		}
 	}
 	
 	/**
@@ -42,4 +46,13 @@ public class CommandInputMap
 		commandsParameterMap.put(command, parameterCount);
 	}
 	
+	/**
+	 * @return true if the command accepts the parking level as an extra last
+	 *         parameter
+	 */
+	public static boolean isLevelCommand(String command)
+	{
+		return levelCommands.contains(command);
+	}
+	
 }
@@ -16,6 +16,13 @@ public interface Constants
 	public static final String	REG_NUMBER_FOR_CARS_WITH_COLOR		= "registration_numbers_for_cars_with_colour";
 	public static final String	SLOTS_NUMBER_FOR_CARS_WITH_COLOR	= "slot_numbers_for_cars_with_colour";
 	public static final String	SLOTS_NUMBER_FOR_REG_NUMBER			= "slot_number_for_registration_number";
+	public static final String	STATS								= "stats";
+	public static final String	FREE_SLOTS							= "free_slots";
+	public static final String	OCCUPANCY							= "occupancy";
+	
+	// options of status
+	public static final String	FROM	= "from";
+	public static final String	LIMIT	= "limit";
 	
 	public static final int	NOT_AVAILABLE			= -1;
 	public static final int	VEHICLE_ALREADY_EXIST	= -2;
@@ -0,0 +1,138 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.constants;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Commands understood by the processor with their arity and the name=value
+ * options they take. The ordinal is used as index into the processor dispatch
+ * table.
+ * 
+ * @author vaibhav
+ */
+public enum Opcode
+{
+	CREATE_PARKING_LOT(Constants.CREATE_PARKING_LOT, 1, false),
+	PARK(Constants.PARK, 2, true),
+	LEAVE(Constants.LEAVE, 1, true),
+	STATUS(Constants.STATUS, 0, true, Constants.FROM, Constants.LIMIT),
+	REG_NUMBER_FOR_CARS_WITH_COLOR(Constants.REG_NUMBER_FOR_CARS_WITH_COLOR, 1, true),
+	SLOTS_NUMBER_FOR_CARS_WITH_COLOR(Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR, 1, true),
+	SLOTS_NUMBER_FOR_REG_NUMBER(Constants.SLOTS_NUMBER_FOR_REG_NUMBER, 1, true),
+	STATS(Constants.STATS, 0, false),
+	FREE_SLOTS(Constants.FREE_SLOTS, 0, true),
+	OCCUPANCY(Constants.OCCUPANCY, 0, false);
+	
+	private static final Opcode[] VALUES = values();
+	
+	private final String	command;
+	private final byte[]	commandBytes;
+	private final int		parameterCount;
+	// the level can be given as an extra last parameter
+	private final boolean	levelOptional;
+	// each option is given as name=value anywhere after the command name
+	private final String[]	options;
+	private final byte[][]	optionBytes;
+	
+	private Opcode(String command, int parameterCount, boolean levelOptional, String... options)
+	{
+		this.command = command;
+		this.commandBytes = command.getBytes(StandardCharsets.US_ASCII);
+		this.parameterCount = parameterCount;
+		this.levelOptional = levelOptional;
+		this.options = options;
+		this.optionBytes = new byte[options.length][];
+		for (int i = 0; i < options.length; i++)
+			optionBytes[i] = (options[i] + "=").getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	public String getCommand()
+	{
+		return command;
+	}
+	
+	/**
+	 * @return number of parameters without the optional level
+	 */
+	public int getParameterCount()
+	{
+		return parameterCount;
+	}
+	
+	public boolean isLevelOptional()
+	{
+		return levelOptional;
+	}
+	
+	/**
+	 * @return index of the option with the given name or -1
+	 */
+	public int getOptionIndex(String name)
+	{
+		for (int i = 0; i < options.length; i++)
+		{
+			if (options[i].equals(name))
+				return i;
+		}
+		return -1;
+	}
+	
+	public int getOptionCount()
+	{
+		return options.length;
+	}
+	
+	public String getOption(int index)
+	{
+		return options[index];
+	}
+	
+	/**
+	 * @return index of the option the token is a name=value of, or -1
+	 */
+	public int matchOption(byte[] bytes, int offset, int length)
+	{
+		for (int option = 0; option < optionBytes.length; option++)
+		{
+			byte[] prefix = optionBytes[option];
+			if (prefix.length > length)
+				continue;
+			int i = 0;
+			while (i < prefix.length && bytes[offset + i] == prefix[i])
+				i++;
+			if (i == prefix.length)
+				return option;
+		}
+		return -1;
+	}
+	
+	/**
+	 * @return true if the command can be given with that many parameters, not
+	 *         counting options
+	 */
+	public boolean accepts(int parameters)
+	{
+		return parameters == parameterCount || (levelOptional && parameters == parameterCount + 1);
+	}
+	
+	/**
+	 * @return the opcode whose command is the given bytes or null
+	 */
+	public static Opcode lookup(byte[] bytes, int offset, int length)
+	{
+		for (Opcode opcode : VALUES)
+		{
+			byte[] commandBytes = opcode.commandBytes;
+			if (commandBytes.length != length)
+				continue;
+			int i = 0;
+			while (i < length && bytes[offset + i] == commandBytes[i])
+				i++;
+			if (i == length)
+				return opcode;
+		}
+		return null;
+	}
+}
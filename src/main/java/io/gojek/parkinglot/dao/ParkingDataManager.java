@@ -3,7 +3,10 @@
  */
 package io.gojek.parkinglot.dao;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 import io.gojek.parkinglot.model.Vehicle;
 
@@ -13,9 +16,86 @@ import io.gojek.parkinglot.model.Vehicle;
  */
 public interface ParkingDataManager<T extends Vehicle>
 {
+	/**
+	 * @return levels of the parking lot in ascending order
+	 */
+	public List<Integer> getLevels();
+	
 	public int parkCar(int level, T vehicle);
 	
-	public boolean leaveCar(int level, int slotNumber);
+	public default boolean leaveCar(int level, int slotNumber)
+	{
+		return removeCar(level, slotNumber) != null;
+	}
+	
+	/**
+	 * Frees the slot like {@link #leaveCar}
+	 * 
+	 * @return the vehicle that was parked on the slot or null if it was empty
+	 */
+	public T removeCar(int level, int slotNumber);
+	
+	/**
+	 * Redo of a logged park, see {@link ParkingLevelDataManager#restoreCar}
+	 */
+	public boolean restoreCar(int level, int slotNumber, T vehicle);
+	
+	/**
+	 * Redo of the vehicles of a snapshot level, see
+	 * {@link ParkingLevelDataManager#restoreAll}
+	 */
+	public default void restoreAll(int level, int[] slotNumbers, List<T> vehicles)
+	{
+		for (int i = 0; i < slotNumbers.length; i++)
+			restoreCar(level, slotNumbers[i], vehicles.get(i));
+	}
+	
+	/**
+	 * Calls the action with every vehicle parked on the level and its slot in
+	 * slot order, without locking
+	 */
+	public void forEachCar(int level, ObjIntConsumer<T> action);
+	
+	/**
+	 * @see ParkingLevelDataManager#forEachCar(int, int, ObjIntConsumer)
+	 */
+	public int forEachCar(int level, int fromSlot, int limit, ObjIntConsumer<T> action);
+	
+	/**
+	 * Parks every vehicle in the list on the level
+	 * 
+	 * @return result of {@link #parkCar} for each vehicle
+	 */
+	public default int[] parkAll(int level, List<T> vehicles)
+	{
+		int[] results = new int[vehicles.size()];
+		for (int i = 0; i < results.length; i++)
+			results[i] = parkCar(level, vehicles.get(i));
+		return results;
+	}
+	
+	/**
+	 * @return result of {@link #leaveCar} for each slot
+	 */
+	public default boolean[] leaveAll(int level, int[] slotNumbers)
+	{
+		List<T> removed = removeAll(level, slotNumbers);
+		boolean[] results = new boolean[slotNumbers.length];
+		for (int i = 0; i < results.length; i++)
+			results[i] = removed.get(i) != null;
+		return results;
+	}
+	
+	/**
+	 * @return result of {@link #removeCar} for each slot
+	 */
+	public default List<T> removeAll(int level, int[] slotNumbers)
+	{
+		List<T> results = new ArrayList<>(slotNumbers.length);
+		for (int slotNumber : slotNumbers)
+			results.add(removeCar(level, slotNumber));
+		return results;
+	}
 	
 	public List<String> getStatus(int level);
 	
@@ -27,5 +107,28 @@ public interface ParkingDataManager<T extends Vehicle>
 	
 	public int getAvailableSlotsCount(int level);
 	
+	/**
+	 * @return free slots of all levels, each level read on its own
+	 */
+	public default int getAvailableSlotsCount()
+	{
+		int available = 0;
+		for (int level : getLevels())
+			available += getAvailableSlotsCount(level);
+		return available;
+	}
+	
+	/**
+	 * @see ParkingLevelDataManager#getColorCount(String)
+	 */
+	public int getColorCount(int level, String color);
+	
+	/**
+	 * @see ParkingLevelDataManager#getColorCounts()
+	 */
+	public Map<String, Integer> getColorCounts(int level);
+	
+	public int getCapacity(int level);
+	
 	public void doCleanup();
 }
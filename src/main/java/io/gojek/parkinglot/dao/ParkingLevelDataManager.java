@@ -4,6 +4,8 @@
 package io.gojek.parkinglot.dao;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 import io.gojek.parkinglot.model.Vehicle;
 
@@ -15,7 +17,79 @@ public interface ParkingLevelDataManager<T extends Vehicle>
 {
 	public int parkCar(T vehicle);
 	
-	public boolean leaveCar(int slotNumber);
+	public default boolean leaveCar(int slotNumber)
+	{
+		return removeCar(slotNumber) != null;
+	}
+	
+	/**
+	 * Frees the slot like {@link #leaveCar}
+	 * 
+	 * @return the vehicle that was parked on the slot or null if it was empty
+	 */
+	public T removeCar(int slotNumber);
+	
+	/**
+	 * Redo of a logged park, used to rebuild the level from a snapshot and a
+	 * log: the vehicle is put on the given slot replacing whatever is on it,
+	 * and leaves any other slot it is on
+	 * 
+	 * @return false if the slot is not on the level
+	 */
+	public boolean restoreCar(int slotNumber, T vehicle);
+	
+	/**
+	 * Restores the vehicles of a snapshot, like a {@link #restoreCar} for each
+	 * slot in ascending order
+	 */
+	public default void restoreAll(int[] slotNumbers, List<T> vehicles)
+	{
+		for (int i = 0; i < slotNumbers.length; i++)
+			restoreCar(slotNumbers[i], vehicles.get(i));
+	}
+	
+	/**
+	 * Calls the action with every parked vehicle and its slot in slot order.
+	 * Does not lock: a vehicle parked or leaving meanwhile may or may not be
+	 * seen.
+	 */
+	public default void forEachCar(ObjIntConsumer<T> action)
+	{
+		forEachCar(1, Integer.MAX_VALUE, action);
+	}
+	
+	/**
+	 * Calls the action with up to limit parked vehicles from fromSlot on, in
+	 * slot order and without locking like {@link #forEachCar(ObjIntConsumer)}
+	 * 
+	 * @return the next occupied slot to continue from or Constants.NOT_FOUND
+	 *         if no vehicle is parked after the ones visited
+	 */
+	public int forEachCar(int fromSlot, int limit, ObjIntConsumer<T> action);
+	
+	/**
+	 * Parks every vehicle in the list
+	 * 
+	 * @return result of {@link #parkCar} for each vehicle
+	 */
+	public default int[] parkAll(List<T> vehicles)
+	{
+		int[] results = new int[vehicles.size()];
+		for (int i = 0; i < results.length; i++)
+			results[i] = parkCar(vehicles.get(i));
+		return results;
+	}
+	
+	/**
+	 * @return result of {@link #leaveCar} for each slot
+	 */
+	public default boolean[] leaveAll(int[] slotNumbers)
+	{
+		boolean[] results = new boolean[slotNumbers.length];
+		for (int i = 0; i < results.length; i++)
+			results[i] = leaveCar(slotNumbers[i]);
+		return results;
+	}
 	
 	public List<String> getStatus();
 	
@@ -27,5 +101,19 @@ public interface ParkingLevelDataManager<T extends Vehicle>
 	
 	public int getAvailableSlotsCount();
 	
+	/**
+	 * @return vehicles of the color, matched ignoring case, read from a
+	 *         counter kept by parks and leaves
+	 */
+	public int getColorCount(String color);
+	
+	/**
+	 * @return vehicles per color spelled as first parked, without the colors
+	 *         no vehicle has
+	 */
+	public Map<String, Integer> getColorCounts();
+	
+	public int getCapacity();
+	
 	public void doCleanUp();
 }
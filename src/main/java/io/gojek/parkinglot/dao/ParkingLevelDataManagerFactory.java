@@ -0,0 +1,25 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao;
+
+import io.gojek.parkinglot.model.ColorDictionary;
+import io.gojek.parkinglot.model.Vehicle;
+import io.gojek.parkinglot.model.strategy.ParkingStrategy;
+
+/**
+ * Creates the manager of each level of a parking lot
+ * 
+ * @author vaibhav
+ * @param <T>
+ */
+@FunctionalInterface
+public interface ParkingLevelDataManagerFactory<T extends Vehicle>
+{
+	/**
+	 * @param colorDictionary
+	 *            encodes the colors of the lot, shared by all its levels
+	 */
+	public ParkingLevelDataManager<T> create(int level, int capacity, ParkingStrategy parkingStrategy,
+			ColorDictionary colorDictionary);
+}
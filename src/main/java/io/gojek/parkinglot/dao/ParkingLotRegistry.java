@@ -0,0 +1,48 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * Holds the parking lots served by one process, keyed by lot id
+ * 
+ * @author vaibhav
+ * @param <T>
+ */
+public interface ParkingLotRegistry<T extends Vehicle>
+{
+	/**
+	 * Registers the parking lot unless the id is already in use
+	 * 
+	 * @return the parking lot already registered with the id or null if the
+	 *         given lot was registered
+	 */
+	public ParkingDataManager<T> register(String lotId, ParkingDataManager<T> dataManager);
+	
+	/**
+	 * @return the parking lot or null if there is no lot with the id
+	 */
+	public ParkingDataManager<T> get(String lotId);
+	
+	/**
+	 * Keeps what the services of a lot have to share besides its data, such as
+	 * the locks they take on its levels. The state may be asked for before the
+	 * lot is registered and is dropped when the lot is removed.
+	 * 
+	 * @return the state of the lot with the type, created by factory on first
+	 *         use
+	 */
+	public <S> S getState(String lotId, Class<S> type, Supplier<S> factory);
+	
+	/**
+	 * Removes the parking lot and its state and cleans up its data
+	 */
+	public void remove(String lotId);
+	
+	public Set<String> getLotIds();
+}
@@ -0,0 +1,46 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao;
+
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * Storage of the vehicles parked on one level, indexed by slot number
+ * 1..capacity
+ * 
+ * @author vaibhav
+ * @param <T>
+ */
+public interface ParkingSlotStore<T extends Vehicle>
+{
+	public int getCapacity();
+	
+	/**
+	 * @return the vehicle parked in the slot or null if the slot is empty
+	 */
+	public T get(int slot);
+	
+	public boolean isOccupied(int slot);
+	
+	public void put(int slot, T vehicle);
+	
+	/**
+	 * Puts the vehicle in the slot only if the slot is empty
+	 * 
+	 * @return true if the vehicle was put in the slot
+	 */
+	public boolean claim(int slot, T vehicle);
+	
+	/**
+	 * @return the vehicle which was parked in the slot or null if the slot was
+	 *         already empty
+	 */
+	public T remove(int slot);
+	
+	/**
+	 * @return the first occupied slot starting from fromSlot (inclusive) or
+	 *         Constants.NOT_FOUND if there is none
+	 */
+	public int nextOccupied(int fromSlot);
+}
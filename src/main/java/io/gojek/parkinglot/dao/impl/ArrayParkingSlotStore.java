@@ -0,0 +1,136 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.dao.ParkingSlotStore;
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * Slot store backed by an array indexed directly by slot number, with an
+ * occupancy bitmap so that scans can skip 64 empty slots at a time. Parking and
+ * leaving do not allocate.
+ * 
+ * @author vaibhav
+ * @param <T>
+ */
+public class ArrayParkingSlotStore<T extends Vehicle> implements ParkingSlotStore<T>
+{
+	private final int						capacity;
+	// index 0 is unused so that slot number can be used as index
+	private final AtomicReferenceArray<T>	vehicles;
+	// bit (slot % 64) of word (slot / 64) is set when the slot is occupied
+	private final AtomicLongArray			occupancy;
+	
+	public ArrayParkingSlotStore(int capacity)
+	{
+		// slot numbers are used as index, so the array has capacity + 1 entries
+		if (capacity < 0 || capacity == Integer.MAX_VALUE)
+			throw new IllegalArgumentException("capacity " + capacity);
+		this.capacity = capacity;
+		this.vehicles = new AtomicReferenceArray<>(capacity + 1);
+		this.occupancy = new AtomicLongArray((capacity >>> 6) + 1);
+	}
+	
+	@Override
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	@Override
+	public T get(int slot)
+	{
+		return vehicles.get(slot);
+	}
+	
+	@Override
+	public boolean isOccupied(int slot)
+	{
+		return (occupancy.get(slot >>> 6) & (1L << slot)) != 0;
+	}
+	
+	@Override
+	public void put(int slot, T vehicle)
+	{
+		checkSlot(slot);
+		vehicles.set(slot, vehicle);
+		setBit(slot);
+	}
+	
+	@Override
+	public boolean claim(int slot, T vehicle)
+	{
+		checkSlot(slot);
+		if (!vehicles.compareAndSet(slot, null, vehicle))
+			return false;
+		setBit(slot);
+		return true;
+	}
+	
+	@Override
+	public T remove(int slot)
+	{
+		checkSlot(slot);
+		T vehicle = vehicles.getAndSet(slot, null);
+		if (vehicle != null)
+			clearBit(slot);
+		return vehicle;
+	}
+	
+	@Override
+	public int nextOccupied(int fromSlot)
+	{
+		if (fromSlot < 1)
+			fromSlot = 1;
+		if (fromSlot > capacity)
+			return Constants.NOT_FOUND;
+		int wordIndex = fromSlot >>> 6;
+		long word = occupancy.get(wordIndex) & (-1L << fromSlot);
+		while (true)
+		{
+			if (word != 0)
+			{
+				int slot = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+				return slot <= capacity ? slot : Constants.NOT_FOUND;
+			}
+			if (++wordIndex == occupancy.length())
+				return Constants.NOT_FOUND;
+			word = occupancy.get(wordIndex);
+		}
+	}
+	
+	private void checkSlot(int slot)
+	{
+		if (slot < 1 || slot > capacity)
+			throw new IndexOutOfBoundsException("slot " + slot);
+	}
+	
+	private void setBit(int slot)
+	{
+		int wordIndex = slot >>> 6;
+		long bit = 1L << slot;
+		long word;
+		do
+		{
+			word = occupancy.get(wordIndex);
+		}
+		while (!occupancy.compareAndSet(wordIndex, word, word | bit));
+	}
+	
+	private void clearBit(int slot)
+	{
+		int wordIndex = slot >>> 6;
+		long bit = 1L << slot;
+		long word;
+		do
+		{
+			word = occupancy.get(wordIndex);
+		}
+		while (!occupancy.compareAndSet(wordIndex, word, word & ~bit));
+	}
+}
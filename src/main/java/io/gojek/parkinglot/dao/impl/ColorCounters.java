@@ -0,0 +1,99 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.model.ColorDictionary;
+
+/**
+ * Number of vehicles parked on a level per color key code, kept up to date by
+ * every park and leave so that it is read without scanning or locking the
+ * level
+ * 
+ * @author vaibhav
+ */
+final class ColorCounters
+{
+	private final ColorDictionary colorDictionary;
+	// color key code - parked vehicles
+	private final Map<Integer, AtomicInteger> counts = new ConcurrentHashMap<>();
+	// upper cased color - parked vehicles, for colors the dictionary had no
+	// room for, and the spelling the color was first counted with
+	private final Map<String, AtomicInteger>	rawCounts		= new ConcurrentHashMap<>();
+	private final Map<String, String>			rawSpellings	= new ConcurrentHashMap<>();
+	
+	ColorCounters(ColorDictionary colorDictionary)
+	{
+		this.colorDictionary = colorDictionary;
+	}
+	
+	/**
+	 * @param keyCode
+	 *            key code of the color or Constants.NOT_FOUND for a
+	 *            {@link ColorDictionary#RAW} color, which is counted by its
+	 *            spelling
+	 */
+	void increment(int keyCode, String color)
+	{
+		if (keyCode == Constants.NOT_FOUND)
+		{
+			String key = toKey(color);
+			rawSpellings.putIfAbsent(key, color);
+			rawCounts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+			return;
+		}
+		AtomicInteger count = counts.get(keyCode);
+		if (count == null)
+			count = counts.computeIfAbsent(keyCode, key -> new AtomicInteger());
+		count.incrementAndGet();
+	}
+	
+	void decrement(int keyCode, String color)
+	{
+		AtomicInteger count = keyCode == Constants.NOT_FOUND ? rawCounts.get(toKey(color)) : counts.get(keyCode);
+		if (count != null)
+			count.decrementAndGet();
+	}
+	
+	/**
+	 * @return vehicles of the color, matched ignoring case
+	 */
+	int get(String color)
+	{
+		int keyCode = colorDictionary.find(color);
+		AtomicInteger count = keyCode == Constants.NOT_FOUND ? rawCounts.get(toKey(color)) : counts.get(keyCode);
+		return count == null ? 0 : count.get();
+	}
+	
+	/**
+	 * @return vehicles per color spelled as first parked, colors with no
+	 *         vehicle are left out
+	 */
+	Map<String, Integer> toMap()
+	{
+		Map<String, Integer> colorCounts = new HashMap<>();
+		counts.forEach((keyCode, count) -> {
+			int value = count.get();
+			if (value > 0)
+				colorCounts.put(colorDictionary.decode(keyCode), value);
+		});
+		rawCounts.forEach((key, count) -> {
+			int value = count.get();
+			if (value > 0)
+				colorCounts.put(rawSpellings.get(key), value);
+		});
+		return colorCounts;
+	}
+	
+	private static String toKey(String color)
+	{
+		return color.toUpperCase(Locale.ENGLISH);
+	}
+}
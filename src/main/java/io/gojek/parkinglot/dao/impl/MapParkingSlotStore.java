@@ -0,0 +1,85 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.dao.ParkingSlotStore;
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * Slot store backed by a hash map of the occupied slots. Suited to sparse use
+ * of very large levels, otherwise prefer {@link ArrayParkingSlotStore}
+ * 
+ * @author vaibhav
+ * @param <T>
+ */
+public class MapParkingSlotStore<T extends Vehicle> implements ParkingSlotStore<T>
+{
+	private final int			capacity;
+	private final Map<Integer, T>	slotVehicleMap;
+	
+	public MapParkingSlotStore(int capacity)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity " + capacity);
+		this.capacity = capacity;
+		this.slotVehicleMap = new ConcurrentHashMap<>();
+	}
+	
+	@Override
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	@Override
+	public T get(int slot)
+	{
+		return slotVehicleMap.get(slot);
+	}
+	
+	@Override
+	public boolean isOccupied(int slot)
+	{
+		return slotVehicleMap.containsKey(slot);
+	}
+	
+	@Override
+	public void put(int slot, T vehicle)
+	{
+		if (slot < 1 || slot > capacity)
+			throw new IndexOutOfBoundsException("slot " + slot);
+		slotVehicleMap.put(slot, vehicle);
+	}
+	
+	@Override
+	public boolean claim(int slot, T vehicle)
+	{
+		if (slot < 1 || slot > capacity)
+			throw new IndexOutOfBoundsException("slot " + slot);
+		return slotVehicleMap.putIfAbsent(slot, vehicle) == null;
+	}
+	
+	@Override
+	public T remove(int slot)
+	{
+		if (slot < 1 || slot > capacity)
+			throw new IndexOutOfBoundsException("slot " + slot);
+		return slotVehicleMap.remove(slot);
+	}
+	
+	@Override
+	public int nextOccupied(int fromSlot)
+	{
+		for (int i = Math.max(fromSlot, 1); i <= capacity; i++)
+		{
+			if (slotVehicleMap.containsKey(i))
+				return i;
+		}
+		return Constants.NOT_FOUND;
+	}
+}
@@ -4,20 +4,31 @@
 package io.gojek.parkinglot.dao.impl;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
+import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
 
 import io.gojek.parkinglot.constants.Constants;
 import io.gojek.parkinglot.dao.ParkingLevelDataManager;
+import io.gojek.parkinglot.dao.ParkingSlotStore;
+import io.gojek.parkinglot.event.ParkingEvent.Type;
+import io.gojek.parkinglot.event.ParkingEventStream;
+import io.gojek.parkinglot.model.ColorDictionary;
 import io.gojek.parkinglot.model.Vehicle;
-import io.gojek.parkinglot.model.strategy.NearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.BitmapNearestFirstParkingStrategy;
 import io.gojek.parkinglot.model.strategy.ParkingStrategy;
 
 /**
- * This class is a singleton class to manage the data of parking system
+ * This class manages the data of one level of the parking system, each level
+ * has its own instance
  * 
  * @author vaibhav
  * @param <T>
@@ -31,86 +42,320 @@ public class MemoryParkingLevelManager<T extends Vehicle> implements ParkingLeve
 	// Allocation Strategy for parking
 	private ParkingStrategy parkingStrategy;
 	// this is per level - slot - vehicle
-	private Map<Integer, Optional<T>> slotVehicleMap;
+	private ParkingSlotStore<T> slotStore;
+	// upper cased registration number - slot, kept in sync with slotStore
+	private Map<String, Integer> registrationSlotMap;
+	// color key code - slots in ascending order, kept in sync with slotStore
+	private Map<Integer, NavigableSet<Integer>> colorSlotMap;
+	// upper cased color - slots, for the colors the dictionary had no room for
+	private Map<String, NavigableSet<Integer>> rawColorSlotMap;
+	private ColorDictionary	colorDictionary;
+	private ColorCounters	colorCounters;
+	// parks and leaves are published here when set
+	private volatile ParkingEventStream eventStream;
+	// with a stream set, a slot is claimed or freed and its event published
+	// holding the monitor of the slot, slots share them by the low bits
+	private final Object[] slotMonitors = new Object[64];
 	
-	@SuppressWarnings("rawtypes")
-	private static MemoryParkingLevelManager instance = null;
+	public MemoryParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy)
+	{
+		this(level, capacity, parkingStrategy, new ColorDictionary());
+	}
 	
-	@SuppressWarnings("unchecked")
-	public static <T extends Vehicle> MemoryParkingLevelManager<T> getInstance(int level, int capacity,
-			ParkingStrategy parkingStrategy)
+	public MemoryParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy,
+			ColorDictionary colorDictionary)
 	{
-		if (instance == null)
-		{
-			synchronized (MemoryParkingLevelManager.class)
-			{
-				if (instance == null)
-				{
-					instance = new MemoryParkingLevelManager<T>(level, capacity, parkingStrategy);
-				}
-			}
-		}
-		return instance;
+		this(level, capacity, parkingStrategy, new ArrayParkingSlotStore<T>(capacity), colorDictionary);
 	}
 	
-	private MemoryParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy)
+	public MemoryParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy,
+			ParkingSlotStore<T> slotStore)
+	{
+		this(level, capacity, parkingStrategy, slotStore, new ColorDictionary());
+	}
+	
+	/**
+	 * @param colorDictionary
+	 *            encodes the colors of the level, usually shared with the other
+	 *            levels of the lot
+	 */
+	public MemoryParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy,
+			ParkingSlotStore<T> slotStore, ColorDictionary colorDictionary)
 	{
 		this.level.set(level);
 		this.capacity.set(capacity);
 		this.availability.set(capacity);
-		this.parkingStrategy = parkingStrategy;
 		if (parkingStrategy == null)
-			parkingStrategy = new NearestFirstParkingStrategy();
-		slotVehicleMap = new ConcurrentHashMap<>();
+			parkingStrategy = new BitmapNearestFirstParkingStrategy(capacity);
+		this.parkingStrategy = parkingStrategy;
+		this.slotStore = slotStore;
+		registrationSlotMap = new ConcurrentHashMap<>();
+		colorSlotMap = new ConcurrentHashMap<>();
+		rawColorSlotMap = new ConcurrentHashMap<>();
+		this.colorDictionary = colorDictionary;
+		colorCounters = new ColorCounters(colorDictionary);
+		for (int i = 0; i < slotMonitors.length; i++)
+			slotMonitors[i] = new Object();
 		for (int i = 1; i <= capacity; i++)
 		{
-			slotVehicleMap.put(i, Optional.empty());
 			parkingStrategy.add(i);
 		}
 	}
 	
+	/**
+	 * Lock free: the slot is claimed from the strategy and then in the slot
+	 * store with compare-and-set, so concurrent callers never share a slot.
+	 * With an event stream set the claim and its event hold the monitor of the
+	 * slot.
+	 */
 	@Override
 	public int parkCar(T vehicle)
 	{
-		int availableSlot;
-		if (availability.get() == 0)
+		String registrationKey = toKey(vehicle.getRegistrationNo());
+		int result;
+		do
 		{
-			return Constants.NOT_AVAILABLE;
+			int availableSlot = parkingStrategy.claimSlot();
+			if (availableSlot == Constants.NOT_AVAILABLE)
+				return Constants.NOT_AVAILABLE;
+			result = parkCar(vehicle, registrationKey, availableSlot);
+			if (result == Constants.VEHICLE_ALREADY_EXIST)
+				parkingStrategy.add(availableSlot);
+		}
+		while (result == Constants.NOT_AVAILABLE);
+		return result;
+	}
+	
+	@Override
+	public boolean restoreCar(int slotNumber, T vehicle)
+	{
+		if (slotNumber < 1 || slotNumber > capacity.get())
+			return false;
+		if (slotStore.isOccupied(slotNumber))
+			leaveCar(slotNumber);
+		String registrationKey = toKey(vehicle.getRegistrationNo());
+		Integer otherSlot = registrationSlotMap.get(registrationKey);
+		if (otherSlot != null)
+			leaveCar(otherSlot);
+		parkingStrategy.removeSlot(slotNumber);
+		int result = parkCar(vehicle, registrationKey, slotNumber);
+		// the slot is given back unless another vehicle is on it
+		if (result == Constants.VEHICLE_ALREADY_EXIST)
+			parkingStrategy.add(slotNumber);
+		return result == slotNumber;
+	}
+	
+	/**
+	 * Fills an empty level in one pass: the vehicles go straight into the slot
+	 * store and the indexes, the slots of a color are added in ascending order
+	 * and the strategy drops all taken slots at once. A level with vehicles
+	 * restores one vehicle at a time.
+	 */
+	@Override
+	public void restoreAll(int[] slotNumbers, List<T> vehicles)
+	{
+		if (availability.get() != capacity.get())
+		{
+			ParkingLevelDataManager.super.restoreAll(slotNumbers, vehicles);
+			return;
+		}
+		// sized up front instead of growing while filled
+		if (registrationSlotMap.isEmpty())
+			registrationSlotMap = new ConcurrentHashMap<>(slotNumbers.length);
+		BitSet taken = new BitSet(capacity.get() + 1);
+		Map<Integer, List<Integer>> colorSlots = new HashMap<>();
+		for (int i = 0; i < slotNumbers.length; i++)
+		{
+			int slot = slotNumbers[i];
+			T vehicle = vehicles.get(i);
+			if (slot < 1 || slot > capacity.get() || taken.get(slot))
+				continue;
+			String registrationKey = toKey(vehicle.getRegistrationNo());
+			// the snapshot has each vehicle once, a duplicate is left out
+			if (registrationSlotMap.putIfAbsent(registrationKey, slot) != null)
+				continue;
+			if (!claim(slot, vehicle))
+			{
+				registrationSlotMap.remove(registrationKey, slot);
+				continue;
+			}
+			taken.set(slot);
+			int keyCode = colorKeyCode(vehicle);
+			if (keyCode == Constants.NOT_FOUND)
+				colorSlots(keyCode, vehicle.getColor()).add(slot);
+			else
+				colorSlots.computeIfAbsent(keyCode, key -> new ArrayList<>()).add(slot);
+			colorCounters.increment(keyCode, vehicle.getColor());
 		}
-		else
+		colorSlots.forEach((keyCode, slots) -> colorSlotMap
+				.computeIfAbsent(keyCode, key -> new ConcurrentSkipListSet<>()).addAll(slots));
+		availability.addAndGet(-taken.cardinality());
+		parkingStrategy.removeSlots(taken);
+	}
+	
+	@Override
+	public int forEachCar(int fromSlot, int limit, ObjIntConsumer<T> action)
+	{
+		int slot = slotStore.nextOccupied(fromSlot);
+		for (int visited = 0; slot != Constants.NOT_FOUND && visited < limit; slot = slotStore.nextOccupied(slot + 1))
 		{
-			availableSlot = parkingStrategy.getSlot();
-			if (slotVehicleMap.containsValue(Optional.of(vehicle)))
-				return Constants.VEHICLE_ALREADY_EXIST;
-			
-			slotVehicleMap.put(availableSlot, Optional.of(vehicle));
-			availability.decrementAndGet();
-			parkingStrategy.removeSlot(availableSlot);
+			T vehicle = slotStore.get(slot);
+			if (vehicle != null)
+			{
+				action.accept(vehicle, slot);
+				visited++;
+			}
 		}
-		return availableSlot;
+		return slot;
 	}
 	
+	/**
+	 * Claims the slots for the whole list from the strategy at once, slots left
+	 * over by vehicles already parked are given back at the end
+	 */
 	@Override
-	public boolean leaveCar(int slotNumber)
+	public int[] parkAll(List<T> vehicles)
 	{
-		if (!slotVehicleMap.get(slotNumber).isPresent()) // Slot already empty
-			return false;
+		int[] results = new int[vehicles.size()];
+		int[] slots = new int[vehicles.size()];
+		int claimed = parkingStrategy.claimSlots(slots, slots.length);
+		int next = 0;
+		for (int i = 0; i < results.length; i++)
+		{
+			T vehicle = vehicles.get(i);
+			String registrationKey = toKey(vehicle.getRegistrationNo());
+			int result = Constants.NOT_AVAILABLE;
+			while (result == Constants.NOT_AVAILABLE && next < claimed)
+			{
+				result = parkCar(vehicle, registrationKey, slots[next]);
+				if (result != Constants.VEHICLE_ALREADY_EXIST)
+					next++;
+			}
+			// out of claimed slots, one may have been freed since
+			if (result == Constants.NOT_AVAILABLE)
+				result = parkCar(vehicle);
+			results[i] = result;
+		}
+		for (; next < claimed; next++)
+			parkingStrategy.add(slots[next]);
+		return results;
+	}
+	
+	/**
+	 * Parks the vehicle on the slot claimed from the strategy
+	 * 
+	 * @return the slot, Constants.VEHICLE_ALREADY_EXIST if the slot was not
+	 *         used or Constants.NOT_AVAILABLE if the slot turned out to be in
+	 *         use, it is then kept out of the strategy
+	 */
+	private int parkCar(T vehicle, String registrationKey, int slot)
+	{
+		if (registrationSlotMap.putIfAbsent(registrationKey, slot) != null)
+			return Constants.VEHICLE_ALREADY_EXIST;
+		if (!claim(slot, vehicle))
+		{
+			registrationSlotMap.remove(registrationKey, slot);
+			return Constants.NOT_AVAILABLE;
+		}
+		int keyCode = colorKeyCode(vehicle);
+		colorSlots(keyCode, vehicle.getColor()).add(slot);
+		colorCounters.increment(keyCode, vehicle.getColor());
+		availability.decrementAndGet();
+		return slot;
+	}
+	
+	@Override
+	public T removeCar(int slotNumber)
+	{
+		T vehicle = free(slotNumber);
+		if (vehicle == null) // Slot already empty
+			return null;
+		registrationSlotMap.remove(toKey(vehicle.getRegistrationNo()), slotNumber);
+		int keyCode = colorKeyCode(vehicle);
+		NavigableSet<Integer> colorSlots = getColorSlots(keyCode, vehicle.getColor());
+		if (colorSlots != null)
+			colorSlots.remove(slotNumber);
+		colorCounters.decrement(keyCode, vehicle.getColor());
 		availability.incrementAndGet();
+		// the slot is given out again only once it is out of every index
 		parkingStrategy.add(slotNumber);
-		slotVehicleMap.put(slotNumber, Optional.empty());
-		return true;
+		return vehicle;
+	}
+	
+	/**
+	 * Slots outside of the level are reported as empty instead of failing the
+	 * rest of the list
+	 */
+	@Override
+	public boolean[] leaveAll(int[] slotNumbers)
+	{
+		boolean[] results = new boolean[slotNumbers.length];
+		for (int i = 0; i < results.length; i++)
+		{
+			int slotNumber = slotNumbers[i];
+			results[i] = slotNumber >= 1 && slotNumber <= capacity.get() && leaveCar(slotNumber);
+		}
+		return results;
+	}
+	
+	/**
+	 * @param eventStream
+	 *            receives an event for every park and leave from now on,
+	 *            including the restores of a recovery
+	 */
+	public void setEventStream(ParkingEventStream eventStream)
+	{
+		this.eventStream = eventStream;
+	}
+	
+	/**
+	 * Claims the slot in the store and publishes the park before a leave of
+	 * the slot can publish, so that the events of a slot are in order
+	 */
+	private boolean claim(int slot, T vehicle)
+	{
+		ParkingEventStream stream = eventStream;
+		if (stream == null)
+			return slotStore.claim(slot, vehicle);
+		synchronized (slotMonitors[slot & (slotMonitors.length - 1)])
+		{
+			if (!slotStore.claim(slot, vehicle))
+				return false;
+			stream.publish(Type.PARK, level.get(), slot, vehicle);
+			return true;
+		}
+	}
+	
+	/**
+	 * Frees the slot in the store and publishes the leave before the slot can
+	 * be claimed again
+	 * 
+	 * @return the vehicle which left, null if the slot was empty
+	 */
+	private T free(int slot)
+	{
+		ParkingEventStream stream = eventStream;
+		if (stream == null)
+			return slotStore.remove(slot);
+		synchronized (slotMonitors[slot & (slotMonitors.length - 1)])
+		{
+			T vehicle = slotStore.remove(slot);
+			if (vehicle != null)
+				stream.publish(Type.LEAVE, level.get(), slot, vehicle);
+			return vehicle;
+		}
 	}
 	
 	@Override
 	public List<String> getStatus()
 	{
 		List<String> statusList = new ArrayList<>();
-		for (int i = 1; i <= capacity.get(); i++)
+		for (int i = slotStore.nextOccupied(1); i != Constants.NOT_FOUND; i = slotStore.nextOccupied(i + 1))
 		{
-			Optional<T> vehicle = slotVehicleMap.get(i);
-			if (vehicle.isPresent())
+			T vehicle = slotStore.get(i);
+			if (vehicle != null)
 			{
-				statusList.add(i + "\t\t" + vehicle.get().getRegistrationNo() + "\t\t" + vehicle.get().getColor());
+				statusList.add(i + "\t\t" + vehicle.getRegistrationNo() + "\t\t" + vehicle.getColor());
 			}
 		}
 		return statusList;
@@ -121,16 +366,34 @@ public class MemoryParkingLevelManager<T extends Vehicle> implements ParkingLeve
 		return availability.get();
 	}
 	
+	@Override
+	public int getCapacity()
+	{
+		return capacity.get();
+	}
+	
+	@Override
+	public int getColorCount(String color)
+	{
+		return colorCounters.get(color);
+	}
+	
+	@Override
+	public Map<String, Integer> getColorCounts()
+	{
+		return colorCounters.toMap();
+	}
+	
 	@Override
 	public List<String> getRegNumberForColor(String color)
 	{
 		List<String> statusList = new ArrayList<>();
-		for (int i = 1; i <= capacity.get(); i++)
+		for (Integer slot : getColorSlots(color))
 		{
-			Optional<T> vehicle = slotVehicleMap.get(i);
-			if (vehicle.isPresent() && color.equalsIgnoreCase(vehicle.get().getColor()))
+			T vehicle = slotStore.get(slot);
+			if (vehicle != null)
 			{
-				statusList.add(vehicle.get().getRegistrationNo());
+				statusList.add(vehicle.getRegistrationNo());
 			}
 		}
 		return statusList;
@@ -139,31 +402,60 @@ public class MemoryParkingLevelManager<T extends Vehicle> implements ParkingLeve
 	@Override
 	public List<Integer> getSlotNumbersFromColor(String colour)
 	{
-		List<Integer> slotList = new ArrayList<>();
-		for (int i = 1; i <= capacity.get(); i++)
-		{
-			Optional<T> vehicle = slotVehicleMap.get(i);
-			if (vehicle.isPresent() && colour.equalsIgnoreCase(vehicle.get().getColor()))
-			{
-				slotList.add(i);
-			}
-		}
-		return slotList;
+		return new ArrayList<>(getColorSlots(colour));
+	}
+	
+	private NavigableSet<Integer> getColorSlots(String color)
+	{
+		NavigableSet<Integer> colorSlots = getColorSlots(colorDictionary.find(color), color);
+		return colorSlots == null ? Collections.emptyNavigableSet() : colorSlots;
+	}
+	
+	/**
+	 * @return the slots of the color, null if it has none yet
+	 */
+	private NavigableSet<Integer> getColorSlots(int keyCode, String color)
+	{
+		return keyCode == Constants.NOT_FOUND ? rawColorSlotMap.get(toKey(color)) : colorSlotMap.get(keyCode);
+	}
+	
+	private NavigableSet<Integer> colorSlots(int keyCode, String color)
+	{
+		if (keyCode == Constants.NOT_FOUND)
+			return rawColorSlotMap.computeIfAbsent(toKey(color), key -> new ConcurrentSkipListSet<>());
+		return colorSlotMap.computeIfAbsent(keyCode, key -> new ConcurrentSkipListSet<>());
+	}
+	
+	/**
+	 * Also replaces the color of the vehicle with the dictionary's copy, so
+	 * that parked vehicles share one string per color. A color the dictionary
+	 * has no room for is kept as it is.
+	 * 
+	 * @return the key code of the color or Constants.NOT_FOUND for a color
+	 *         that matches no encoded one
+	 */
+	private int colorKeyCode(T vehicle)
+	{
+		int code = colorDictionary.encode(vehicle.getColor());
+		if (code != ColorDictionary.RAW)
+			vehicle.setColor(colorDictionary.decode(code));
+		return colorDictionary.getKeyCode(code, vehicle.getColor());
 	}
 	
 	@Override
 	public int getSlotNoFromRegistrationNo(String registrationNo)
 	{
-		int result = Constants.NOT_FOUND;
-		for (int i = 1; i <= capacity.get(); i++)
-		{
-			Optional<T> vehicle = slotVehicleMap.get(i);
-			if (vehicle.isPresent() && registrationNo.equalsIgnoreCase(vehicle.get().getRegistrationNo()))
-			{
-				result = i;
-			}
-		}
-		return result;
+		Integer slot = registrationSlotMap.get(toKey(registrationNo));
+		return slot == null ? Constants.NOT_FOUND : slot;
+	}
+	
+	/**
+	 * Registration numbers are matched ignoring case, so the index is keyed on
+	 * the upper cased value
+	 */
+	private static String toKey(String value)
+	{
+		return value.toUpperCase(Locale.ENGLISH);
 	}
 	
 	public Object clone() throws CloneNotSupportedException
@@ -178,7 +470,10 @@ public class MemoryParkingLevelManager<T extends Vehicle> implements ParkingLeve
 		this.capacity = new AtomicInteger();
 		this.availability = new AtomicInteger();
 		this.parkingStrategy = null;
-		slotVehicleMap = null;
-		instance = null;
+		slotStore = null;
+		registrationSlotMap = null;
+		colorSlotMap = null;
+		rawColorSlotMap = null;
+		colorCounters = null;
 	}
 }
@@ -0,0 +1,59 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import io.gojek.parkinglot.dao.ParkingDataManager;
+import io.gojek.parkinglot.dao.ParkingLotRegistry;
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * @author vaibhav
+ * @param <T>
+ */
+public class MemoryParkingLotRegistry<T extends Vehicle> implements ParkingLotRegistry<T>
+{
+	private final Map<String, ParkingDataManager<T>> lotMap = new ConcurrentHashMap<>();
+	
+	private final Map<String, Map<Class<?>, Object>> stateMap = new ConcurrentHashMap<>();
+	
+	@Override
+	public ParkingDataManager<T> register(String lotId, ParkingDataManager<T> dataManager)
+	{
+		return lotMap.putIfAbsent(lotId, dataManager);
+	}
+	
+	@Override
+	public ParkingDataManager<T> get(String lotId)
+	{
+		return lotMap.get(lotId);
+	}
+	
+	@Override
+	public <S> S getState(String lotId, Class<S> type, Supplier<S> factory)
+	{
+		Map<Class<?>, Object> states = stateMap.computeIfAbsent(lotId, key -> new ConcurrentHashMap<>());
+		return type.cast(states.computeIfAbsent(type, key -> factory.get()));
+	}
+	
+	@Override
+	public void remove(String lotId)
+	{
+		stateMap.remove(lotId);
+		ParkingDataManager<T> dataManager = lotMap.remove(lotId);
+		if (dataManager != null)
+			dataManager.doCleanup();
+	}
+	
+	@Override
+	public Set<String> getLotIds()
+	{
+		return Collections.unmodifiableSet(lotMap.keySet());
+	}
+}
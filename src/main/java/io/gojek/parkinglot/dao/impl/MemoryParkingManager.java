@@ -3,70 +3,238 @@
  */
 package io.gojek.parkinglot.dao.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
 
+import io.gojek.parkinglot.constants.Constants;
 import io.gojek.parkinglot.dao.ParkingDataManager;
 import io.gojek.parkinglot.dao.ParkingLevelDataManager;
+import io.gojek.parkinglot.dao.ParkingLevelDataManagerFactory;
+import io.gojek.parkinglot.model.ColorDictionary;
 import io.gojek.parkinglot.model.Vehicle;
-import io.gojek.parkinglot.model.strategy.NearestFirstParkingStrategy;
 import io.gojek.parkinglot.model.strategy.ParkingStrategy;
 
 /**
- * This class is a singleton class to manage the data of parking system
+ * This class manages the data of one parking lot, each lot has its own
+ * instance
  * 
  * @author vaibhav
  * @param <T>
  */
 public class MemoryParkingManager<T extends Vehicle> implements ParkingDataManager<T>
 {
-	private Map<Integer, ParkingLevelDataManager<T>> levelParkingMap;
+	private Map<Integer, ParkingLevelDataManager<T>>	levelParkingMap;
+	private List<Integer>								levels;
+	// upper cased registration number - level, claimed before a park so that a
+	// vehicle is never on two levels
+	private final Map<String, Integer>					registrationLevelMap;
 	
-	@SuppressWarnings("rawtypes")
-	private static MemoryParkingManager instance = null;
-	
-	@SuppressWarnings("unchecked")
-	public static <T extends Vehicle> MemoryParkingManager<T> getInstance(List<Integer> parkingLevels,
-			List<Integer> capacityList, List<ParkingStrategy> parkingStrategies)
+	public MemoryParkingManager(List<Integer> parkingLevels, List<Integer> capacityList,
+			List<ParkingStrategy> parkingStrategies)
 	{
-		// Make sure the each of the lists are of equal size
-		if (instance == null)
-		{
-			synchronized (MemoryParkingManager.class)
-			{
-				if (instance == null)
-				{
-					instance = new MemoryParkingManager<T>(parkingLevels, capacityList, parkingStrategies);
-				}
-			}
-		}
-		return instance;
+		this(parkingLevels, capacityList, parkingStrategies, MemoryParkingLevelManager::new);
 	}
 	
-	private MemoryParkingManager(List<Integer> parkingLevels, List<Integer> capacityList,
-			List<ParkingStrategy> parkingStrategies)
+	/**
+	 * @param levelManagerFactory
+	 *            creates the manager of each level, e.g. an
+	 *            {@link OffHeapParkingLevelManager} for very large levels
+	 */
+	public MemoryParkingManager(List<Integer> parkingLevels, List<Integer> capacityList,
+			List<ParkingStrategy> parkingStrategies, ParkingLevelDataManagerFactory<T> levelManagerFactory)
 	{
 		if (levelParkingMap == null)
 			levelParkingMap = new HashMap<>();
+		// sized for a full lot so that a recovery does not grow it vehicle by
+		// vehicle, the table itself is only allocated by the first park
+		long lotCapacity = 0;
+		for (int capacity : capacityList)
+			lotCapacity += capacity;
+		registrationLevelMap = new ConcurrentHashMap<>((int) Math.min(lotCapacity, 1 << 30));
+		// the dictionary lives and goes with the lot
+		ColorDictionary colorDictionary = new ColorDictionary();
 		for (int i = 0; i < parkingLevels.size(); i++)
 		{
-			levelParkingMap.put(parkingLevels.get(i), MemoryParkingLevelManager.getInstance(parkingLevels.get(i),
-					capacityList.get(i), new NearestFirstParkingStrategy()));
+			levelParkingMap.put(parkingLevels.get(i), levelManagerFactory.create(parkingLevels.get(i),
+					capacityList.get(i), parkingStrategies.get(i), colorDictionary));
 			
 		}
+		List<Integer> sortedLevels = new ArrayList<>(levelParkingMap.keySet());
+		Collections.sort(sortedLevels);
+		levels = Collections.unmodifiableList(sortedLevels);
+	}
+	
+	@Override
+	public List<Integer> getLevels()
+	{
+		return levels;
 	}
 	
+	/**
+	 * @return Constants.VEHICLE_ALREADY_EXIST also when the vehicle is parked
+	 *         on another level
+	 */
 	@Override
 	public int parkCar(int level, T vehicle)
 	{
-		return levelParkingMap.get(level).parkCar(vehicle);
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		String registrationKey = toKey(vehicle.getRegistrationNo());
+		if (registrationLevelMap.putIfAbsent(registrationKey, level) != null)
+			return Constants.VEHICLE_ALREADY_EXIST;
+		int slot = Constants.NOT_AVAILABLE;
+		try
+		{
+			slot = levelDataManager.parkCar(vehicle);
+		}
+		finally
+		{
+			if (slot == Constants.NOT_AVAILABLE)
+				registrationLevelMap.remove(registrationKey, level);
+		}
+		return slot;
 	}
 	
 	@Override
-	public boolean leaveCar(int level, int slotNumber)
+	public T removeCar(int level, int slotNumber)
 	{
-		return levelParkingMap.get(level).leaveCar(slotNumber);
+		T vehicle = levelParkingMap.get(level).removeCar(slotNumber);
+		if (vehicle != null)
+			registrationLevelMap.remove(toKey(vehicle.getRegistrationNo()), level);
+		return vehicle;
+	}
+	
+	/**
+	 * The vehicle leaves the slot it is on, whichever level that is
+	 */
+	@Override
+	public boolean restoreCar(int level, int slotNumber, T vehicle)
+	{
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		if (slotNumber < 1 || slotNumber > levelDataManager.getCapacity())
+			return false;
+		leaveCar(level, slotNumber);
+		String registrationKey = toKey(vehicle.getRegistrationNo());
+		leaveOtherLevel(registrationKey, vehicle);
+		if (!levelDataManager.restoreCar(slotNumber, vehicle))
+			return false;
+		registrationLevelMap.put(registrationKey, level);
+		return true;
+	}
+	
+	/**
+	 * Lets an empty level restore the vehicles in one pass, a vehicle found on
+	 * another level leaves it first. Only the vehicles the level restored are
+	 * registered. A level with vehicles restores one vehicle at a time.
+	 */
+	@Override
+	public void restoreAll(int level, int[] slotNumbers, List<T> vehicles)
+	{
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		if (levelDataManager.getAvailableSlotsCount() != levelDataManager.getCapacity())
+		{
+			ParkingDataManager.super.restoreAll(level, slotNumbers, vehicles);
+			return;
+		}
+		for (T vehicle : vehicles)
+			leaveOtherLevel(toKey(vehicle.getRegistrationNo()), vehicle);
+		levelDataManager.restoreAll(slotNumbers, vehicles);
+		for (int i = 0; i < slotNumbers.length; i++)
+		{
+			String registrationNo = vehicles.get(i).getRegistrationNo();
+			// out of range slots and duplicates are left out by the level
+			if (levelDataManager.getSlotNoFromRegistrationNo(registrationNo) == slotNumbers[i])
+				registrationLevelMap.put(toKey(registrationNo), level);
+		}
+	}
+	
+	/**
+	 * Takes the vehicle off the level it is registered on, a registration the
+	 * level does not hold any more is dropped
+	 */
+	private void leaveOtherLevel(String registrationKey, T vehicle)
+	{
+		Integer otherLevel = registrationLevelMap.get(registrationKey);
+		if (otherLevel == null)
+			return;
+		int otherSlot = levelParkingMap.get(otherLevel).getSlotNoFromRegistrationNo(vehicle.getRegistrationNo());
+		if (otherSlot != Constants.NOT_FOUND)
+			leaveCar(otherLevel, otherSlot);
+		else
+			registrationLevelMap.remove(registrationKey, otherLevel);
+	}
+	
+	@Override
+	public void forEachCar(int level, ObjIntConsumer<T> action)
+	{
+		levelParkingMap.get(level).forEachCar(action);
+	}
+	
+	@Override
+	public int forEachCar(int level, int fromSlot, int limit, ObjIntConsumer<T> action)
+	{
+		return levelParkingMap.get(level).forEachCar(fromSlot, limit, action);
+	}
+	
+	@Override
+	public int getCapacity(int level)
+	{
+		return levelParkingMap.get(level).getCapacity();
+	}
+	
+	/**
+	 * Claims the registration numbers of the whole list first, the level then
+	 * parks the vehicles that are on no level in one go
+	 */
+	@Override
+	public int[] parkAll(int level, List<T> vehicles)
+	{
+		int[] results = new int[vehicles.size()];
+		List<T> claimed = new ArrayList<>(vehicles.size());
+		for (int i = 0; i < results.length; i++)
+		{
+			T vehicle = vehicles.get(i);
+			if (registrationLevelMap.putIfAbsent(toKey(vehicle.getRegistrationNo()), level) == null)
+				claimed.add(vehicle);
+			else
+				results[i] = Constants.VEHICLE_ALREADY_EXIST;
+		}
+		int[] parked = new int[0];
+		try
+		{
+			parked = levelParkingMap.get(level).parkAll(claimed);
+		}
+		finally
+		{
+			for (int i = 0, next = 0; i < results.length; i++)
+			{
+				if (results[i] == Constants.VEHICLE_ALREADY_EXIST)
+					continue;
+				results[i] = next < parked.length ? parked[next] : Constants.NOT_AVAILABLE;
+				if (results[i] == Constants.NOT_AVAILABLE)
+					registrationLevelMap.remove(toKey(claimed.get(next).getRegistrationNo()), level);
+				next++;
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Slots outside of the level are reported as empty
+	 */
+	@Override
+	public List<T> removeAll(int level, int[] slotNumbers)
+	{
+		int capacity = levelParkingMap.get(level).getCapacity();
+		List<T> results = new ArrayList<>(slotNumbers.length);
+		for (int slotNumber : slotNumbers)
+			results.add(slotNumber >= 1 && slotNumber <= capacity ? removeCar(level, slotNumber) : null);
+		return results;
 	}
 	
 	@Override
@@ -80,6 +248,18 @@ public class MemoryParkingManager<T extends Vehicle> implements ParkingDataManag
 		return levelParkingMap.get(level).getAvailableSlotsCount();
 	}
 	
+	@Override
+	public int getColorCount(int level, String color)
+	{
+		return levelParkingMap.get(level).getColorCount(color);
+	}
+	
+	@Override
+	public Map<String, Integer> getColorCounts(int level)
+	{
+		return levelParkingMap.get(level).getColorCounts();
+	}
+	
 	@Override
 	public List<String> getRegNumberForColor(int level, String color)
 	{
@@ -110,6 +290,15 @@ public class MemoryParkingManager<T extends Vehicle> implements ParkingDataManag
 			levelDataManager.doCleanUp();
 		}
 		levelParkingMap = null;
-		instance = null;
+		levels = null;
+		registrationLevelMap.clear();
+	}
+	
+	/**
+	 * Registration numbers are matched ignoring case like on the levels
+	 */
+	private static String toKey(String value)
+	{
+		return value.toUpperCase(Locale.ENGLISH);
 	}
 }
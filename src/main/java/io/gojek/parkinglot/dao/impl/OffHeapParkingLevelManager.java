@@ -0,0 +1,552 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.ObjIntConsumer;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.dao.ParkingLevelDataManager;
+import io.gojek.parkinglot.model.ColorDictionary;
+import io.gojek.parkinglot.model.Vehicle;
+import io.gojek.parkinglot.model.strategy.BitmapNearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.ParkingStrategy;
+
+/**
+ * Manages one level like {@link MemoryParkingLevelManager} but keeps the
+ * vehicles outside of the java heap: every slot is a fixed size record in a
+ * direct buffer and the registration number index is an open addressing table
+ * of slot numbers in another one. Colors are stored as their
+ * {@link ColorDictionary} code, the few the dictionary has no room for are kept
+ * on the heap. The records of a color are linked to each other, so color
+ * queries visit only the vehicles of the color, and an occupancy bitmap lets
+ * status skip empty slots. Vehicles are created again by vehicleFactory when
+ * they are read.
+ * 
+ * Registration numbers are limited to {@link #REGISTRATION_WIDTH} bytes in
+ * UTF-8.
+ * 
+ * @author vaibhav
+ * @param <T>
+ */
+public class OffHeapParkingLevelManager<T extends Vehicle> implements ParkingLevelDataManager<T>
+{
+	public static final int	REGISTRATION_WIDTH	= 25;
+	
+	// record: hash of the registration key, color code (0 when the slot is
+	// empty), registration length, registration bytes, next and previous slot
+	// of the same color (0 for none)
+	private static final int	HASH_OFFSET			= 0;
+	private static final int	COLOR_OFFSET		= 4;
+	private static final int	LENGTH_OFFSET		= 6;
+	private static final int	REGISTRATION_OFFSET	= 7;
+	private static final int	NEXT_COLOR_OFFSET	= REGISTRATION_OFFSET + REGISTRATION_WIDTH;
+	private static final int	PREV_COLOR_OFFSET	= NEXT_COLOR_OFFSET + 4;
+	private static final int	RECORD_SIZE			= PREV_COLOR_OFFSET + 4;
+	// records read per hold of the read lock by forEachCar
+	private static final int	PAGE_SIZE			= 1024;
+	
+	private AtomicInteger	level			= new AtomicInteger(0);
+	private AtomicInteger	capacity		= new AtomicInteger();
+	private AtomicInteger	availability	= new AtomicInteger();
+	private ParkingStrategy	parkingStrategy;
+	private BiFunction<String, String, T> vehicleFactory;
+	// record of slot n starts at (n - 1) * RECORD_SIZE
+	private ByteBuffer records;
+	// slot numbers by hash with linear probing, 0 is an empty entry
+	private ByteBuffer	registrationIndex;
+	private int			indexMask;
+	private ColorDictionary	colorDictionary;
+	private ColorCounters	colorCounters;
+	// slot - color, for the records with color code ColorDictionary.RAW
+	private Map<Integer, String> rawColors = new HashMap<>();
+	// color key code - first slot of its records, and the same by upper cased
+	// color for the raw colors that match no encoded one
+	private Map<Integer, Integer>	colorHeads		= new HashMap<>();
+	private Map<String, Integer>	rawColorHeads	= new HashMap<>();
+	// bit n is set when slot n is occupied
+	private BitSet occupied;
+	// parks and leaves of the level are serialized, reads share the lock
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	public OffHeapParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy,
+			BiFunction<String, String, T> vehicleFactory)
+	{
+		this(level, capacity, parkingStrategy, vehicleFactory, new ColorDictionary());
+	}
+	
+	/**
+	 * @param colorDictionary
+	 *            encodes the colors of the level, usually shared with the other
+	 *            levels of the lot
+	 */
+	public OffHeapParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy,
+			BiFunction<String, String, T> vehicleFactory, ColorDictionary colorDictionary)
+	{
+		if (capacity < 0 || capacity > Integer.MAX_VALUE / RECORD_SIZE)
+			throw new IllegalArgumentException("capacity " + capacity);
+		this.level.set(level);
+		this.capacity.set(capacity);
+		this.availability.set(capacity);
+		if (parkingStrategy == null)
+			parkingStrategy = new BitmapNearestFirstParkingStrategy(capacity);
+		this.parkingStrategy = parkingStrategy;
+		this.vehicleFactory = vehicleFactory;
+		this.colorDictionary = colorDictionary;
+		colorCounters = new ColorCounters(colorDictionary);
+		// direct buffers start zeroed, so every slot is empty
+		records = ByteBuffer.allocateDirect(capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+		// at most half full so that probes stay short
+		int indexSize = Integer.highestOneBit(Math.max(1, capacity) * 2 - 1) << 1;
+		registrationIndex = ByteBuffer.allocateDirect(indexSize * 4).order(ByteOrder.nativeOrder());
+		indexMask = indexSize - 1;
+		occupied = new BitSet(capacity + 1);
+		for (int i = 1; i <= capacity; i++)
+		{
+			parkingStrategy.add(i);
+		}
+	}
+	
+	@Override
+	public int parkCar(T vehicle)
+	{
+		String registrationKey = toKey(vehicle.getRegistrationNo());
+		lock.writeLock().lock();
+		try
+		{
+			if (availability.get() == 0)
+				return Constants.NOT_AVAILABLE;
+			int hash = hash(registrationKey);
+			if (findSlot(registrationKey, hash) != Constants.NOT_FOUND)
+				return Constants.VEHICLE_ALREADY_EXIST;
+			byte[] registrationNo = toBytes(vehicle.getRegistrationNo());
+			int colorCode = colorDictionary.encode(vehicle.getColor());
+			int slot = parkingStrategy.claimSlot();
+			if (slot == Constants.NOT_AVAILABLE)
+				return Constants.NOT_AVAILABLE;
+			putRecord(slot, hash, registrationNo, colorCode, vehicle.getColor());
+			return slot;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public T removeCar(int slotNumber)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			if (!isOccupied(slotNumber))
+				return null;
+			T vehicle = readVehicle(slotNumber);
+			removeRecord(slotNumber);
+			// the slot is given out again only once it is out of the index
+			parkingStrategy.add(slotNumber);
+			return vehicle;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public boolean restoreCar(int slotNumber, T vehicle)
+	{
+		String registrationKey = toKey(vehicle.getRegistrationNo());
+		lock.writeLock().lock();
+		try
+		{
+			if (slotNumber < 1 || slotNumber > capacity.get())
+				return false;
+			byte[] registrationNo = toBytes(vehicle.getRegistrationNo());
+			int colorCode = colorDictionary.encode(vehicle.getColor());
+			if (isOccupied(slotNumber))
+				leaveCar(slotNumber);
+			int hash = hash(registrationKey);
+			int otherSlot = findSlot(registrationKey, hash);
+			if (otherSlot != Constants.NOT_FOUND)
+				leaveCar(otherSlot);
+			parkingStrategy.removeSlot(slotNumber);
+			putRecord(slotNumber, hash, registrationNo, colorCode, vehicle.getColor());
+			return true;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Reads up to PAGE_SIZE records per hold of the read lock, the action runs
+	 * without the lock
+	 */
+	@Override
+	public int forEachCar(int fromSlot, int limit, ObjIntConsumer<T> action)
+	{
+		List<T> vehicles = new ArrayList<>();
+		int[] slots = new int[Math.max(1, Math.min(limit, PAGE_SIZE))];
+		int next = Math.max(1, fromSlot);
+		int visited = 0;
+		while (true)
+		{
+			int size = 0;
+			lock.readLock().lock();
+			try
+			{
+				next = occupied.nextSetBit(next);
+				while (next >= 0 && size < slots.length && visited + size < limit)
+				{
+					vehicles.add(readVehicle(next));
+					slots[size++] = next;
+					next = occupied.nextSetBit(next + 1);
+				}
+			}
+			finally
+			{
+				lock.readLock().unlock();
+			}
+			for (int i = 0; i < size; i++)
+				action.accept(vehicles.get(i), slots[i]);
+			vehicles.clear();
+			visited += size;
+			if (next < 0)
+				return Constants.NOT_FOUND;
+			if (visited == limit)
+				return next;
+		}
+	}
+	
+	/**
+	 * Parks the whole list under one write lock
+	 */
+	@Override
+	public int[] parkAll(List<T> vehicles)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			return ParkingLevelDataManager.super.parkAll(vehicles);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Slots outside of the level are reported as empty
+	 */
+	@Override
+	public boolean[] leaveAll(int[] slotNumbers)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			return ParkingLevelDataManager.super.leaveAll(slotNumbers);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public List<String> getStatus()
+	{
+		List<String> statusList = new ArrayList<>();
+		lock.readLock().lock();
+		try
+		{
+			for (int i = occupied.nextSetBit(1); i >= 0; i = occupied.nextSetBit(i + 1))
+				statusList.add(i + "\t\t" + readRegistrationNo(i) + "\t\t" + readColor(i));
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		return statusList;
+	}
+	
+	@Override
+	public int getColorCount(String color)
+	{
+		return colorCounters.get(color);
+	}
+	
+	@Override
+	public Map<String, Integer> getColorCounts()
+	{
+		return colorCounters.toMap();
+	}
+	
+	@Override
+	public List<String> getRegNumberForColor(String color)
+	{
+		List<String> registrationNos = new ArrayList<>();
+		lock.readLock().lock();
+		try
+		{
+			for (int slot : colorSlots(color))
+				registrationNos.add(readRegistrationNo(slot));
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		return registrationNos;
+	}
+	
+	@Override
+	public List<Integer> getSlotNumbersFromColor(String colour)
+	{
+		lock.readLock().lock();
+		try
+		{
+			return colorSlots(colour);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public int getSlotNoFromRegistrationNo(String registrationNo)
+	{
+		String registrationKey = toKey(registrationNo);
+		lock.readLock().lock();
+		try
+		{
+			return findSlot(registrationKey, hash(registrationKey));
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public int getAvailableSlotsCount()
+	{
+		return availability.get();
+	}
+	
+	@Override
+	public int getCapacity()
+	{
+		return capacity.get();
+	}
+	
+	private static byte[] toBytes(String registrationNo)
+	{
+		byte[] bytes = registrationNo.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > REGISTRATION_WIDTH)
+			throw new IllegalArgumentException(
+					"Registration number longer than " + REGISTRATION_WIDTH + " bytes: " + registrationNo);
+		return bytes;
+	}
+	
+	/**
+	 * @param color
+	 *            kept on the heap when colorCode is ColorDictionary.RAW
+	 */
+	private void putRecord(int slot, int hash, byte[] registrationNo, int colorCode, String color)
+	{
+		int offset = offset(slot);
+		records.putInt(offset + HASH_OFFSET, hash);
+		records.putShort(offset + COLOR_OFFSET, (short) colorCode);
+		records.put(offset + LENGTH_OFFSET, (byte) registrationNo.length);
+		for (int i = 0; i < registrationNo.length; i++)
+			records.put(offset + REGISTRATION_OFFSET + i, registrationNo[i]);
+		int i = hash & indexMask;
+		while (registrationIndex.getInt(i << 2) != 0)
+			i = (i + 1) & indexMask;
+		registrationIndex.putInt(i << 2, slot);
+		if (colorCode == ColorDictionary.RAW)
+			rawColors.put(slot, color);
+		int keyCode = colorDictionary.getKeyCode(colorCode, color);
+		colorCounters.increment(keyCode, color);
+		// the record becomes the first of its color
+		Integer head = setColorHead(keyCode, color, slot);
+		records.putInt(offset + NEXT_COLOR_OFFSET, head == null ? 0 : head);
+		records.putInt(offset + PREV_COLOR_OFFSET, 0);
+		if (head != null)
+			records.putInt(offset(head) + PREV_COLOR_OFFSET, slot);
+		occupied.set(slot);
+		availability.decrementAndGet();
+	}
+	
+	/**
+	 * Takes the slot out of the index with backward shift deletion, so that no
+	 * tombstones are left behind, and marks the record empty
+	 */
+	private void removeRecord(int slot)
+	{
+		int i = records.getInt(offset(slot) + HASH_OFFSET) & indexMask;
+		while (registrationIndex.getInt(i << 2) != slot)
+			i = (i + 1) & indexMask;
+		for (int j = (i + 1) & indexMask;; j = (j + 1) & indexMask)
+		{
+			int other = registrationIndex.getInt(j << 2);
+			if (other == 0)
+				break;
+			int home = records.getInt(offset(other) + HASH_OFFSET) & indexMask;
+			// entries whose home is cyclically in (i, j] must stay where they are
+			boolean stays = i < j ? home > i && home <= j : home > i || home <= j;
+			if (!stays)
+			{
+				registrationIndex.putInt(i << 2, other);
+				i = j;
+			}
+		}
+		registrationIndex.putInt(i << 2, 0);
+		String color = readColor(slot);
+		int keyCode = colorDictionary.getKeyCode(colorCode(slot), color);
+		colorCounters.decrement(keyCode, color);
+		int next = records.getInt(offset(slot) + NEXT_COLOR_OFFSET);
+		int prev = records.getInt(offset(slot) + PREV_COLOR_OFFSET);
+		if (next != 0)
+			records.putInt(offset(next) + PREV_COLOR_OFFSET, prev);
+		if (prev != 0)
+			records.putInt(offset(prev) + NEXT_COLOR_OFFSET, next);
+		else
+			setColorHead(keyCode, color, next);
+		rawColors.remove(slot);
+		occupied.clear(slot);
+		records.putShort(offset(slot) + COLOR_OFFSET, (short) 0);
+		availability.incrementAndGet();
+	}
+	
+	private int findSlot(String registrationKey, int hash)
+	{
+		for (int i = hash & indexMask;; i = (i + 1) & indexMask)
+		{
+			int slot = registrationIndex.getInt(i << 2);
+			if (slot == 0)
+				return Constants.NOT_FOUND;
+			if (records.getInt(offset(slot) + HASH_OFFSET) == hash
+					&& registrationKey.equals(toKey(readRegistrationNo(slot))))
+				return slot;
+		}
+	}
+	
+	private T readVehicle(int slot)
+	{
+		return vehicleFactory.apply(readRegistrationNo(slot), readColor(slot));
+	}
+	
+	private String readColor(int slot)
+	{
+		int colorCode = colorCode(slot);
+		return colorCode == ColorDictionary.RAW ? rawColors.get(slot) : colorDictionary.decode(colorCode);
+	}
+	
+	/**
+	 * @param slot
+	 *            new first slot of the color, 0 when the color has no vehicle
+	 *            left
+	 * @return the first slot before
+	 */
+	private Integer setColorHead(int keyCode, String color, int slot)
+	{
+		if (keyCode == Constants.NOT_FOUND)
+			return slot == 0 ? rawColorHeads.remove(toKey(color)) : rawColorHeads.put(toKey(color), slot);
+		return slot == 0 ? colorHeads.remove(keyCode) : colorHeads.put(keyCode, slot);
+	}
+	
+	/**
+	 * Follows the records linked from the first slot of the color, the caller
+	 * holds the lock
+	 * 
+	 * @return the slots of the color in ascending order
+	 */
+	private List<Integer> colorSlots(String color)
+	{
+		int keyCode = colorDictionary.find(color);
+		Integer head = keyCode == Constants.NOT_FOUND ? rawColorHeads.get(toKey(color)) : colorHeads.get(keyCode);
+		List<Integer> slots = new ArrayList<>();
+		for (int slot = head == null ? 0 : head; slot != 0; slot = records.getInt(offset(slot) + NEXT_COLOR_OFFSET))
+			slots.add(slot);
+		Collections.sort(slots);
+		return slots;
+	}
+	
+	private String readRegistrationNo(int slot)
+	{
+		int offset = offset(slot);
+		byte[] registrationNo = new byte[records.get(offset + LENGTH_OFFSET)];
+		for (int i = 0; i < registrationNo.length; i++)
+			registrationNo[i] = records.get(offset + REGISTRATION_OFFSET + i);
+		return new String(registrationNo, StandardCharsets.UTF_8);
+	}
+	
+	private boolean isOccupied(int slot)
+	{
+		return slot >= 1 && slot <= capacity.get() && colorCode(slot) != 0;
+	}
+	
+	private int colorCode(int slot)
+	{
+		return records.getShort(offset(slot) + COLOR_OFFSET) & 0xFFFF;
+	}
+	
+	private static int offset(int slot)
+	{
+		return (slot - 1) * RECORD_SIZE;
+	}
+	
+	private static int hash(String registrationKey)
+	{
+		int hash = registrationKey.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+	
+	/**
+	 * Registration numbers are matched ignoring case
+	 */
+	private static String toKey(String value)
+	{
+		return value.toUpperCase(Locale.ENGLISH);
+	}
+	
+	public Object clone() throws CloneNotSupportedException
+	{
+		throw new CloneNotSupportedException();
+	}
+	
+	/**
+	 * The buffers are released by the garbage collector once unreferenced
+	 */
+	@Override
+	public void doCleanUp()
+	{
+		this.level = new AtomicInteger();
+		this.capacity = new AtomicInteger();
+		this.availability = new AtomicInteger();
+		this.parkingStrategy = null;
+		records = null;
+		registrationIndex = null;
+		rawColors = null;
+		colorHeads = null;
+		rawColorHeads = null;
+		occupied = null;
+		colorCounters = null;
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.event;
+
+/**
+ * A vehicle parked on or left a slot. Events are immutable and numbered in the
+ * order they were published, they keep the registration number and color the
+ * vehicle had then.
+ * 
+ * @author vaibhav
+ */
+public final class ParkingEvent
+{
+	public enum Type
+	{
+		PARK, LEAVE
+	}
+	
+	private final long		sequence;
+	private final Type		type;
+	private final int		level;
+	private final int		slot;
+	private final String	registrationNo;
+	private final String	color;
+	
+	public ParkingEvent(long sequence, Type type, int level, int slot, String registrationNo, String color)
+	{
+		this.sequence = sequence;
+		this.type = type;
+		this.level = level;
+		this.slot = slot;
+		this.registrationNo = registrationNo;
+		this.color = color;
+	}
+	
+	public long getSequence()
+	{
+		return sequence;
+	}
+	
+	public Type getType()
+	{
+		return type;
+	}
+	
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	public int getSlot()
+	{
+		return slot;
+	}
+	
+	/**
+	 * @return registration number of the vehicle parked, or of the one which
+	 *         left
+	 */
+	public String getRegistrationNo()
+	{
+		return registrationNo;
+	}
+	
+	public String getColor()
+	{
+		return color;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return sequence + " " + type + " level " + level + " slot " + slot + " [registrationNo=" + registrationNo
+				+ ", color=" + color + "]";
+	}
+}
@@ -0,0 +1,30 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.event;
+
+import java.util.List;
+
+/**
+ * Consumes the events of a {@link ParkingEventStream} on the subscription
+ * thread
+ * 
+ * @author vaibhav
+ */
+public interface ParkingEventListener
+{
+	/**
+	 * @param events
+	 *            the next events in order, the list is reused after the call
+	 */
+	public void onEvents(List<ParkingEvent> events);
+	
+	/**
+	 * Called when the listener fell more than the stream capacity behind, the
+	 * missed events are gone and a view built from the events has to be read
+	 * again from the lot
+	 */
+	public default void onMissed(long count)
+	{
+	}
+}
@@ -0,0 +1,215 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.event;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import io.gojek.parkinglot.event.ParkingEvent.Type;
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * Bounded ring of the latest parking events. Publishing takes a sequence
+ * number with one atomic increment and stores the event with one
+ * compare-and-set: publishers never lock and never wait for subscribers. Each
+ * subscription reads at its own pace; one which falls more than the capacity
+ * behind skips to the oldest event left and is told how many it missed.
+ * 
+ * @author vaibhav
+ */
+public class ParkingEventStream
+{
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	
+	private final AtomicReferenceArray<ParkingEvent>	events;
+	private final int									mask;
+	// sequence of the next event
+	private final AtomicLong							cursor	= new AtomicLong();
+	
+	public ParkingEventStream()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * @param capacity
+	 *            a power of two
+	 */
+	public ParkingEventStream(int capacity)
+	{
+		if (capacity < 1 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+		this.events = new AtomicReferenceArray<>(capacity);
+		this.mask = capacity - 1;
+	}
+	
+	/**
+	 * @param vehicle
+	 *            its registration number and color are copied into the event
+	 * @return the sequence number of the event
+	 */
+	public long publish(Type type, int level, int slot, Vehicle vehicle)
+	{
+		String registrationNo = vehicle.getRegistrationNo();
+		String color = vehicle.getColor();
+		long sequence = cursor.getAndIncrement();
+		ParkingEvent event = new ParkingEvent(sequence, type, level, slot, registrationNo, color);
+		int index = (int) sequence & mask;
+		ParkingEvent current;
+		do
+		{
+			current = events.get(index);
+			// a publisher a whole lap ahead got there first
+			if (current != null && current.getSequence() > sequence)
+				return sequence;
+		}
+		while (!events.compareAndSet(index, current, event));
+		return sequence;
+	}
+	
+	/**
+	 * @return sequence number the next event will get
+	 */
+	public long getCursor()
+	{
+		return cursor.get();
+	}
+	
+	public int getCapacity()
+	{
+		return mask + 1;
+	}
+	
+	/**
+	 * @return a subscription to the events published from now on, read with
+	 *         {@link Subscription#poll}
+	 */
+	public Subscription subscribe()
+	{
+		return new Subscription(cursor.get());
+	}
+	
+	/**
+	 * Delivers the events published from now on to the listener on a thread of
+	 * its own, in batches of up to maxBatch events
+	 */
+	public Subscription subscribe(ParkingEventListener listener, int maxBatch)
+	{
+		Subscription subscription = subscribe();
+		subscription.start(listener, maxBatch);
+		return subscription;
+	}
+	
+	public class Subscription implements Closeable
+	{
+		// sequence of the next event to read
+		private long				next;
+		private long				missed	= 0;
+		private volatile boolean	closed	= false;
+		private Thread				thread	= null;
+		
+		private Subscription(long next)
+		{
+			this.next = next;
+		}
+		
+		/**
+		 * Adds up to maxBatch of the next events to batch without waiting. Events
+		 * lost to a lap of the ring are skipped only when nothing is added, so
+		 * that the events before and after a gap never share a batch.
+		 * 
+		 * @return number of events added
+		 */
+		public synchronized int poll(List<ParkingEvent> batch, int maxBatch)
+		{
+			int count = 0;
+			while (count < maxBatch)
+			{
+				ParkingEvent event = events.get((int) next & mask);
+				// not published yet
+				if (event == null || event.getSequence() < next)
+					break;
+				if (event.getSequence() > next)
+				{
+					if (count > 0)
+						break;
+					long oldest = Math.max(next + 1, cursor.get() - events.length());
+					missed += oldest - next;
+					next = oldest;
+					continue;
+				}
+				batch.add(event);
+				next++;
+				count++;
+			}
+			return count;
+		}
+		
+		/**
+		 * @return number of events skipped so far because they were overwritten
+		 *         before they were read
+		 */
+		public synchronized long getMissed()
+		{
+			return missed;
+		}
+		
+		private void start(ParkingEventListener listener, int maxBatch)
+		{
+			thread = new Thread(() -> deliver(listener, maxBatch), "parking-events");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		/**
+		 * Publishers do not signal, the thread backs off up to 1 ms while there
+		 * is nothing to read
+		 */
+		private void deliver(ParkingEventListener listener, int maxBatch)
+		{
+			List<ParkingEvent> batch = new ArrayList<>(maxBatch);
+			int idle = 0;
+			while (!closed)
+			{
+				long missedBefore = getMissed();
+				batch.clear();
+				int count = poll(batch, maxBatch);
+				long missedNow = getMissed();
+				if (missedNow != missedBefore)
+					listener.onMissed(missedNow - missedBefore);
+				if (count > 0)
+				{
+					listener.onEvents(batch);
+					idle = 0;
+				}
+				else
+					LockSupport.parkNanos(Math.min(1000000L, 1000L << Math.min(idle++, 10)));
+			}
+		}
+		
+		/**
+		 * Stops the delivery thread, if any, after the batch it is delivering
+		 */
+		@Override
+		public void close()
+		{
+			closed = true;
+			if (thread == null)
+				return;
+			LockSupport.unpark(thread);
+			try
+			{
+				thread.join();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
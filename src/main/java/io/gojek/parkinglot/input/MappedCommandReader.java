@@ -0,0 +1,123 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.input;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import io.gojek.parkinglot.processor.Command;
+
+/**
+ * Reads a command file through memory mapped windows of the file and tokenizes
+ * every line straight from the mapped bytes into a reusable {@link Command}.
+ * Files larger than a window (or than 2GB) are read one window at a time, a
+ * line crossing the end of a window is read again from the next window.
+ * 
+ * Lines end with \n, \r or \r\n like BufferedReader.readLine.
+ * 
+ * @author vaibhav
+ */
+public class MappedCommandReader implements Closeable
+{
+	public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+	
+	private final FileChannel	channel;
+	private final long			size;
+	private final int			windowSize;
+	private MappedByteBuffer	window;
+	// file position of the first byte of window
+	private long				windowStart;
+	// file position of the next line
+	private long				position;
+	private int					lineNo;
+	
+	public MappedCommandReader(Path path) throws IOException
+	{
+		this(path, DEFAULT_WINDOW_SIZE);
+	}
+	
+	public MappedCommandReader(Path path, int windowSize) throws IOException
+	{
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.windowSize = windowSize;
+	}
+	
+	/**
+	 * Loads the next line into the command
+	 * 
+	 * @return false when the end of the file is reached
+	 */
+	public boolean next(Command command) throws IOException
+	{
+		if (position >= size)
+			return false;
+		if (window == null || position >= windowStart + window.limit())
+			map(position);
+		int start = (int) (position - windowStart);
+		int end = findLineEnd(start);
+		if (end == window.limit() && windowStart + end < size)
+		{
+			// line continues past this window, read it again from its start
+			map(position);
+			start = 0;
+			end = findLineEnd(start);
+			if (end == window.limit() && windowStart + end < size)
+				throw new IOException("Line " + (lineNo + 1) + " is longer than " + windowSize + " bytes");
+		}
+		command.load(window, start, end - start);
+		lineNo++;
+		// skip the line terminator, \r\n counts as one
+		long next = windowStart + end;
+		if (next < size && readByte(next++) == '\r' && next < size && readByte(next) == '\n')
+			next++;
+		position = next;
+		return true;
+	}
+	
+	/**
+	 * @return line number of the last line read, starting from 1
+	 */
+	public int getLineNo()
+	{
+		return lineNo;
+	}
+	
+	private int findLineEnd(int start)
+	{
+		int limit = window.limit();
+		for (int i = start; i < limit; i++)
+		{
+			byte b = window.get(i);
+			if (b == '\n' || b == '\r')
+				return i;
+		}
+		return limit;
+	}
+	
+	private void map(long start) throws IOException
+	{
+		windowStart = start;
+		window = channel.map(MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+	}
+	
+	private byte readByte(long filePosition) throws IOException
+	{
+		if (filePosition >= windowStart + window.limit())
+			map(filePosition);
+		return window.get((int) (filePosition - windowStart));
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		window = null;
+		channel.close();
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with log-linear buckets like
+ * HdrHistogram: each power of two is split into 32 buckets, so percentiles are
+ * within about 3% of the recorded values. Recording does not allocate or lock.
+ * 
+ * @author vaibhav
+ */
+public class LatencyHistogram
+{
+	private static final int	SUB_BUCKET_BITS	= 5;
+	private static final int	SUB_BUCKETS		= 1 << SUB_BUCKET_BITS;
+	// values below 2 * SUB_BUCKETS have a bucket each, then SUB_BUCKETS per
+	// power of two up to Long.MAX_VALUE
+	private static final int	BUCKETS			= (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray	counts	= new AtomicLongArray(BUCKETS);
+	private final LongAdder			total	= new LongAdder();
+	private final AtomicLong		max		= new AtomicLong();
+	
+	public void record(long nanos)
+	{
+		// System.nanoTime is not guaranteed to be monotonic on every platform
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucket(value));
+		total.add(value);
+		if (value > max.get())
+			max.accumulateAndGet(value, Math::max);
+	}
+	
+	public long getCount()
+	{
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += counts.get(i);
+		return count;
+	}
+	
+	public double getMean()
+	{
+		long count = getCount();
+		return count == 0 ? 0 : (double) total.sum() / count;
+	}
+	
+	public long getMax()
+	{
+		return max.get();
+	}
+	
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return the largest value of the bucket the percentile falls in, 0 when
+	 *         nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		long count = getCount();
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			seen += counts.get(i);
+			if (seen >= rank)
+				return Math.min(highestValue(i), getMax());
+		}
+		return getMax();
+	}
+	
+	/**
+	 * Not atomic, values recorded meanwhile may be partly kept
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+		total.reset();
+		max.set(0);
+	}
+	
+	private static int bucket(long value)
+	{
+		if (value < 2 * SUB_BUCKETS)
+			return (int) value;
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+	
+	private static long highestValue(int bucket)
+	{
+		if (bucket < 2 * SUB_BUCKETS)
+			return bucket;
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
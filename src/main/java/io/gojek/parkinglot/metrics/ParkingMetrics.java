@@ -0,0 +1,229 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.dao.ParkingDataManager;
+
+/**
+ * Counters and latency histograms of the parking service operations, the wait
+ * for the level locks and the occupancy of the levels. Recording does not
+ * allocate, the occupancy is read from the lot when reported.
+ * 
+ * Operations are timed by the service around their level manager calls, so the
+ * latencies include the work of the level whether or not a lock was held. Lock
+ * waits only cover the service's level locks: parks and leaves always take the
+ * write lock, reads only take the read lock when all their lock free attempts
+ * were overlapped by writes, and counts take none. Locks and retries inside a level
+ * manager, such as those of OffHeapParkingLevelManager, are not in the waits.
+ * 
+ * @author vaibhav
+ */
+public class ParkingMetrics implements ParkingMetricsMXBean
+{
+	public static final String OBJECT_NAME = "io.gojek.parkinglot:type=ParkingMetrics";
+	
+	public enum Operation
+	{
+		PARK(Constants.PARK), LEAVE(Constants.LEAVE), PARK_ALL("park_all"), LEAVE_ALL("leave_all"), STATUS(
+				Constants.STATUS), REG_NUMBER_FOR_CARS_WITH_COLOR(
+						Constants.REG_NUMBER_FOR_CARS_WITH_COLOR), SLOTS_NUMBER_FOR_CARS_WITH_COLOR(
+								Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR), SLOTS_NUMBER_FOR_REG_NUMBER(
+										Constants.SLOTS_NUMBER_FOR_REG_NUMBER), FREE_SLOTS(
+												Constants.FREE_SLOTS), OCCUPANCY(Constants.OCCUPANCY);
+		
+		private final String name;
+		
+		private Operation(String name)
+		{
+			this.name = name;
+		}
+		
+		public String getName()
+		{
+			return name;
+		}
+	}
+	
+	public enum Outcome
+	{
+		LOT_FULL("lot_full"), ALREADY_PARKED("already_parked"), SLOT_EMPTY("slot_empty"), READ_RETRY("read_retries");
+		
+		private final String name;
+		
+		private Outcome(String name)
+		{
+			this.name = name;
+		}
+		
+		public String getName()
+		{
+			return name;
+		}
+	}
+	
+	private final LatencyHistogram[]				latencies	= new LatencyHistogram[Operation.values().length];
+	private final LongAdder[]						outcomes	= new LongAdder[Outcome.values().length];
+	private final Map<Integer, LatencyHistogram>	lockWaits	= new ConcurrentHashMap<>();
+	// the lot of the service, null until it is created
+	private final Supplier<ParkingDataManager<?>>	parkingLot;
+	
+	public ParkingMetrics(Supplier<ParkingDataManager<?>> parkingLot)
+	{
+		this.parkingLot = parkingLot;
+		for (int i = 0; i < latencies.length; i++)
+			latencies[i] = new LatencyHistogram();
+		for (int i = 0; i < outcomes.length; i++)
+			outcomes[i] = new LongAdder();
+	}
+	
+	/**
+	 * @param startNanos
+	 *            System.nanoTime() when the operation started
+	 */
+	public void record(Operation operation, long startNanos)
+	{
+		latencies[operation.ordinal()].record(System.nanoTime() - startNanos);
+	}
+	
+	public void count(Outcome outcome)
+	{
+		outcomes[outcome.ordinal()].increment();
+	}
+	
+	/**
+	 * @param nanos
+	 *            wait for the service's lock of the level, 0 if it was free
+	 */
+	public void recordLockWait(int level, long nanos)
+	{
+		LatencyHistogram histogram = lockWaits.get(level);
+		if (histogram == null)
+			histogram = lockWaits.computeIfAbsent(level, key -> new LatencyHistogram());
+		histogram.record(nanos);
+	}
+	
+	public LatencyHistogram getLatency(Operation operation)
+	{
+		return latencies[operation.ordinal()];
+	}
+	
+	public long getCount(Outcome outcome)
+	{
+		return outcomes[outcome.ordinal()].sum();
+	}
+	
+	/**
+	 * @return the lines printed by the stats command, times in microseconds
+	 */
+	public List<String> report()
+	{
+		List<String> lines = new ArrayList<>();
+		lines.add("Operation\tCount\tMean(us)\tP50(us)\tP99(us)\tP99.9(us)\tMax(us)");
+		for (Operation operation : Operation.values())
+		{
+			LatencyHistogram histogram = latencies[operation.ordinal()];
+			long count = histogram.getCount();
+			if (count > 0)
+				lines.add(operation.getName() + "\t" + count + "\t" + micros(histogram.getMean()) + "\t"
+						+ micros(histogram.getValueAtPercentile(50)) + "\t"
+						+ micros(histogram.getValueAtPercentile(99)) + "\t"
+						+ micros(histogram.getValueAtPercentile(99.9)) + "\t" + micros(histogram.getMax()));
+		}
+		StringBuilder counters = new StringBuilder();
+		for (Outcome outcome : Outcome.values())
+			counters.append(counters.length() == 0 ? "" : ", ").append(outcome.getName()).append(": ")
+					.append(getCount(outcome));
+		lines.add(counters.toString());
+		lines.add("Level\tCapacity\tOccupied\tLock waits\tP99 wait(us)\tMax wait(us)");
+		ParkingDataManager<?> lot = parkingLot.get();
+		for (Integer level : lot == null ? Collections.<Integer> emptyList() : lot.getLevels())
+		{
+			LatencyHistogram histogram = lockWaits.getOrDefault(level, new LatencyHistogram());
+			int capacity = lot.getCapacity(level);
+			lines.add(level + "\t" + capacity + "\t" + (capacity - lot.getAvailableSlotsCount(level)) + "\t"
+					+ histogram.getCount() + "\t" + micros(histogram.getValueAtPercentile(99)) + "\t"
+					+ micros(histogram.getMax()));
+		}
+		return lines;
+	}
+	
+	private static String micros(double nanos)
+	{
+		return String.format(Locale.ROOT, "%.1f", nanos / 1000);
+	}
+	
+	@Override
+	public Map<String, Long> getCounts()
+	{
+		Map<String, Long> counts = new TreeMap<>();
+		for (Operation operation : Operation.values())
+			counts.put(operation.getName(), latencies[operation.ordinal()].getCount());
+		for (Outcome outcome : Outcome.values())
+			counts.put(outcome.getName(), getCount(outcome));
+		return counts;
+	}
+	
+	@Override
+	public Map<String, Long> getLatencies()
+	{
+		Map<String, Long> values = new TreeMap<>();
+		for (Operation operation : Operation.values())
+		{
+			LatencyHistogram histogram = latencies[operation.ordinal()];
+			values.put(operation.getName() + ".mean", (long) histogram.getMean());
+			values.put(operation.getName() + ".p50", histogram.getValueAtPercentile(50));
+			values.put(operation.getName() + ".p99", histogram.getValueAtPercentile(99));
+			values.put(operation.getName() + ".p99.9", histogram.getValueAtPercentile(99.9));
+			values.put(operation.getName() + ".max", histogram.getMax());
+		}
+		return values;
+	}
+	
+	@Override
+	public Map<String, Long> getLockWaits()
+	{
+		Map<String, Long> values = new TreeMap<>();
+		for (Map.Entry<Integer, LatencyHistogram> entry : lockWaits.entrySet())
+		{
+			values.put("level" + entry.getKey() + ".p99", entry.getValue().getValueAtPercentile(99));
+			values.put("level" + entry.getKey() + ".max", entry.getValue().getMax());
+		}
+		return values;
+	}
+	
+	@Override
+	public Map<Integer, Integer> getOccupancy()
+	{
+		Map<Integer, Integer> occupancy = new TreeMap<>();
+		ParkingDataManager<?> lot = parkingLot.get();
+		if (lot != null)
+		{
+			for (Integer level : lot.getLevels())
+				occupancy.put(level, lot.getCapacity(level) - lot.getAvailableSlotsCount(level));
+		}
+		return occupancy;
+	}
+	
+	@Override
+	public void reset()
+	{
+		for (LatencyHistogram histogram : latencies)
+			histogram.reset();
+		for (LongAdder outcome : outcomes)
+			outcome.reset();
+		for (LatencyHistogram histogram : lockWaits.values())
+			histogram.reset();
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics of the parking service as seen through JMX
+ * 
+ * @author vaibhav
+ */
+public interface ParkingMetricsMXBean
+{
+	/**
+	 * @return calls of each operation and the counters of their outcomes
+	 */
+	public Map<String, Long> getCounts();
+	
+	/**
+	 * @return mean, p50, p99, p99.9 and max of each operation in nanoseconds,
+	 *         keyed like park.p99
+	 */
+	public Map<String, Long> getLatencies();
+	
+	/**
+	 * @return p99 and max wait for the service's lock of each level in
+	 *         nanoseconds, keyed like level1.p99
+	 */
+	public Map<String, Long> getLockWaits();
+	
+	/**
+	 * @return occupied slots by level
+	 */
+	public Map<Integer, Integer> getOccupancy();
+	
+	public void reset();
+}
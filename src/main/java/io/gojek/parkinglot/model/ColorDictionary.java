@@ -0,0 +1,111 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.gojek.parkinglot.constants.Constants;
+
+/**
+ * Gives every color spelling a small code, starting from 1, when it is first
+ * parked so that levels can store and compare codes instead of strings.
+ * Spellings that differ only in case share a key code, the code of the first
+ * of them, which is what color queries match on.
+ * 
+ * Each parking lot has its own dictionary, so the colors are dropped with the
+ * lot. Codes fit in 16 bits; once {@link #MAX_CODE} colors are encoded, new
+ * colors get {@link #RAW} and are kept as they are by the levels.
+ * 
+ * @author vaibhav
+ */
+public final class ColorDictionary
+{
+	public static final int	MAX_CODE	= 0xFFFE;
+	// code of a color which did not fit in the dictionary any more
+	public static final int	RAW			= 0xFFFF;
+	
+	// spelling -> code
+	private final Map<String, Integer>	codes		= new ConcurrentHashMap<>();
+	// upper cased spelling -> key code
+	private final Map<String, Integer>	keyCodes	= new ConcurrentHashMap<>();
+	// by code, replaced when they grow; written before the code is published
+	private volatile String[]			colors		= new String[64];
+	private volatile int[]				colorKeys	= new int[64];
+	private int							size		= 0;
+	
+	/**
+	 * @return the code of the color, assigned if the color is new, or
+	 *         {@link #RAW} if the color is new and there are already
+	 *         {@link #MAX_CODE} colors
+	 */
+	public int encode(String color)
+	{
+		Integer code = codes.get(color);
+		return code != null ? code : add(color);
+	}
+	
+	private synchronized int add(String color)
+	{
+		Integer code = codes.get(color);
+		if (code != null)
+			return code;
+		if (size == MAX_CODE)
+			return RAW;
+		int newCode = ++size;
+		String key = color.toUpperCase(Locale.ENGLISH);
+		int keyCode = keyCodes.getOrDefault(key, newCode);
+		String[] colors = this.colors;
+		int[] colorKeys = this.colorKeys;
+		if (newCode == colors.length)
+		{
+			colors = Arrays.copyOf(colors, colors.length * 2);
+			colorKeys = Arrays.copyOf(colorKeys, colorKeys.length * 2);
+		}
+		colors[newCode] = color;
+		colorKeys[newCode] = keyCode;
+		this.colors = colors;
+		this.colorKeys = colorKeys;
+		keyCodes.putIfAbsent(key, keyCode);
+		codes.put(color, newCode);
+		return newCode;
+	}
+	
+	/**
+	 * @return the key code colors matching the color ignoring case have, or
+	 *         Constants.NOT_FOUND if no such color was encoded
+	 */
+	public int find(String color)
+	{
+		Integer keyCode = keyCodes.get(color.toUpperCase(Locale.ENGLISH));
+		return keyCode == null ? Constants.NOT_FOUND : keyCode;
+	}
+	
+	/**
+	 * @return the color spelled as when it was encoded
+	 */
+	public String decode(int code)
+	{
+		return colors[code];
+	}
+	
+	/**
+	 * @return the key code of an encoded color, 0 for code 0
+	 */
+	public int getKeyCode(int code)
+	{
+		return colorKeys[code];
+	}
+	
+	/**
+	 * @return the key code of the color encoded as code, for a {@link #RAW}
+	 *         color the key code of a matching color or Constants.NOT_FOUND
+	 */
+	public int getKeyCode(int code, String color)
+	{
+		return code == RAW ? find(color) : colorKeys[code];
+	}
+}
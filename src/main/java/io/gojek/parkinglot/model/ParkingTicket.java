@@ -0,0 +1,45 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.model;
+
+/**
+ * Result of parking a vehicle on the level chosen by the service
+ * 
+ * @author vaibhav
+ */
+public class ParkingTicket
+{
+	private final int	level;
+	// the slot number or Constants.NOT_AVAILABLE / VEHICLE_ALREADY_EXIST
+	private final int	slot;
+	
+	public ParkingTicket(int level, int slot)
+	{
+		this.level = level;
+		this.slot = slot;
+	}
+	
+	/**
+	 * @return the level, Constants.NOT_AVAILABLE when the lot is full
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	/**
+	 * @return the slot number or Constants.NOT_AVAILABLE /
+	 *         Constants.VEHICLE_ALREADY_EXIST
+	 */
+	public int getSlot()
+	{
+		return slot;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "[level=" + level + ", slot=" + slot + "]";
+	}
+}
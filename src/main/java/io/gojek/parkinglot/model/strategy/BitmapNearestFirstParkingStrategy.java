@@ -0,0 +1,228 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.model.strategy;
+
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.gojek.parkinglot.constants.Constants;
+
+/**
+ * Same allocation order as {@link NearestFirstParkingStrategy} but keeps free
+ * slots in a two level bitmap instead of a TreeSet: a bit per slot and a
+ * summary bit per 64 slot word telling whether the word may have a free slot.
+ * The nearest slot is found with a numberOfTrailingZeros on the summary and one
+ * on the word.
+ * 
+ * All updates are compare-and-set on the bitmap words, so slots can be claimed
+ * by many threads at once without a lock.
+ * 
+ * @author vaibhav
+ */
+public class BitmapNearestFirstParkingStrategy implements ParkingStrategy
+{
+	private final int				capacity;
+	private final AtomicLongArray	freeSlots;
+	// a set bit may be stale, a clear bit always means the word is empty
+	private final AtomicLongArray	summary;
+	// no summary word below this index has a bit set
+	private final AtomicInteger		lowestSummary;
+	
+	public BitmapNearestFirstParkingStrategy(int capacity)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity " + capacity);
+		this.capacity = capacity;
+		freeSlots = new AtomicLongArray((capacity >>> 6) + 1);
+		summary = new AtomicLongArray((freeSlots.length() >>> 6) + 1);
+		lowestSummary = new AtomicInteger(summary.length());
+	}
+	
+	@Override
+	public void add(int i)
+	{
+		if (i < 1 || i > capacity)
+			throw new IndexOutOfBoundsException("slot " + i);
+		int word = i >>> 6;
+		setBit(freeSlots, word, 1L << i);
+		setBit(summary, word >>> 6, 1L << word);
+		lowerSummaryHint(word >>> 6);
+	}
+	
+	@Override
+	public int getSlot()
+	{
+		for (int word = nextWord(0); word != -1; word = nextWord(word + 1))
+		{
+			long bits = freeSlots.get(word);
+			if (bits != 0)
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+		}
+		throw new NoSuchElementException();
+	}
+	
+	@Override
+	public void removeSlot(int slot)
+	{
+		if (slot < 1 || slot > capacity)
+			return;
+		int word = slot >>> 6;
+		if (clearBit(freeSlots, word, 1L << slot) == 0)
+			clearSummary(word);
+	}
+	
+	/**
+	 * The bit set has the layout of the bitmap, so a word is cleared at once
+	 */
+	@Override
+	public void removeSlots(BitSet slots)
+	{
+		long[] words = slots.toLongArray();
+		for (int word = 0; word < words.length && word < freeSlots.length(); word++)
+		{
+			if (words[word] != 0 && clearBit(freeSlots, word, words[word]) == 0)
+				clearSummary(word);
+		}
+	}
+	
+	@Override
+	public int claimSlot()
+	{
+		for (int word = nextWord(0); word != -1; word = nextWord(word + 1))
+		{
+			long bits;
+			while ((bits = freeSlots.get(word)) != 0)
+			{
+				long lowest = Long.lowestOneBit(bits);
+				if (freeSlots.compareAndSet(word, bits, bits & ~lowest))
+				{
+					if ((bits & ~lowest) == 0)
+						clearSummary(word);
+					return (word << 6) + Long.numberOfTrailingZeros(lowest);
+				}
+			}
+		}
+		return Constants.NOT_AVAILABLE;
+	}
+	
+	/**
+	 * Takes the lowest free bits of a word with a single compare-and-set
+	 */
+	@Override
+	public int claimSlots(int[] slots, int count)
+	{
+		int claimed = 0;
+		for (int word = nextWord(0); word != -1 && claimed < count; word = nextWord(word + 1))
+		{
+			long bits;
+			while (claimed < count && (bits = freeSlots.get(word)) != 0)
+			{
+				long taken = 0;
+				long rest = bits;
+				for (int n = claimed; n < count && rest != 0; n++)
+				{
+					taken |= Long.lowestOneBit(rest);
+					rest &= rest - 1;
+				}
+				if (freeSlots.compareAndSet(word, bits, rest))
+				{
+					if (rest == 0)
+						clearSummary(word);
+					for (; taken != 0; taken &= taken - 1)
+						slots[claimed++] = (word << 6) + Long.numberOfTrailingZeros(taken);
+				}
+			}
+		}
+		return claimed;
+	}
+	
+	/**
+	 * @return the first word from fromWord (inclusive) whose summary bit is set
+	 *         or -1
+	 */
+	private int nextWord(int fromWord)
+	{
+		int hint = lowestSummary.get();
+		int index = Math.max(fromWord >>> 6, hint);
+		if (index >= summary.length())
+			return -1;
+		long bits = summary.get(index);
+		if (index == fromWord >>> 6)
+			bits &= -1L << fromWord;
+		while (bits == 0)
+		{
+			if (++index == summary.length())
+				return -1;
+			bits = summary.get(index);
+		}
+		if (index > hint && fromWord == 0)
+			raiseSummaryHint(hint, index);
+		return (index << 6) + Long.numberOfTrailingZeros(bits);
+	}
+	
+	private void clearSummary(int word)
+	{
+		clearBit(summary, word >>> 6, 1L << word);
+		// a slot may have been added between emptying the word and clearing
+		// its summary bit
+		if (freeSlots.get(word) != 0)
+		{
+			setBit(summary, word >>> 6, 1L << word);
+			lowerSummaryHint(word >>> 6);
+		}
+	}
+	
+	private void lowerSummaryHint(int index)
+	{
+		int hint;
+		while ((hint = lowestSummary.get()) > index)
+		{
+			if (lowestSummary.compareAndSet(hint, index))
+				return;
+		}
+	}
+	
+	private void raiseSummaryHint(int hint, int index)
+	{
+		if (!lowestSummary.compareAndSet(hint, index))
+			return;
+		// an add may have set a summary bit below index before seeing the raise
+		for (int i = hint; i < index; i++)
+		{
+			if (summary.get(i) != 0)
+			{
+				lowerSummaryHint(i);
+				return;
+			}
+		}
+	}
+	
+	private static void setBit(AtomicLongArray words, int index, long bit)
+	{
+		long word;
+		do
+		{
+			word = words.get(index);
+		}
+		while ((word & bit) == 0 && !words.compareAndSet(index, word, word | bit));
+	}
+	
+	/**
+	 * @return the word after clearing the bit
+	 */
+	private static long clearBit(AtomicLongArray words, int index, long bit)
+	{
+		long word;
+		do
+		{
+			word = words.get(index);
+			if ((word & bit) == 0)
+				return word;
+		}
+		while (!words.compareAndSet(index, word, word & ~bit));
+		return word & ~bit;
+	}
+}
@@ -0,0 +1,36 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.model.strategy;
+
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import io.gojek.parkinglot.constants.Constants;
+
+/**
+ * Spreads vehicles over the floors by choosing the level with the most free
+ * slots, the lowest one on a tie
+ * 
+ * @author vaibhav
+ */
+public class LeastLoadedLevelStrategy implements LevelSelectionStrategy
+{
+	@Override
+	public int selectLevel(List<Integer> levels, IntUnaryOperator availableSlots)
+	{
+		int selected = Constants.NOT_AVAILABLE;
+		int mostAvailable = 0;
+		for (int i = 0; i < levels.size(); i++)
+		{
+			int level = levels.get(i);
+			int available = availableSlots.applyAsInt(level);
+			if (available > mostAvailable)
+			{
+				selected = level;
+				mostAvailable = available;
+			}
+		}
+		return selected;
+	}
+}
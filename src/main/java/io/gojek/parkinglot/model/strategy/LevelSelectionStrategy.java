@@ -0,0 +1,25 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.model.strategy;
+
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Chooses the level on which a vehicle is parked in a multi level parking lot
+ * 
+ * @author vaibhav
+ */
+public interface LevelSelectionStrategy
+{
+	/**
+	 * @param levels
+	 *            levels of the parking lot in ascending order
+	 * @param availableSlots
+	 *            gives the free slot count of a level
+	 * @return the level to park on or Constants.NOT_AVAILABLE if every level is
+	 *         full
+	 */
+	public int selectLevel(List<Integer> levels, IntUnaryOperator availableSlots);
+}
@@ -0,0 +1,29 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.model.strategy;
+
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import io.gojek.parkinglot.constants.Constants;
+
+/**
+ * Fills the lowest floor first
+ * 
+ * @author vaibhav
+ */
+public class LowestLevelFirstStrategy implements LevelSelectionStrategy
+{
+	@Override
+	public int selectLevel(List<Integer> levels, IntUnaryOperator availableSlots)
+	{
+		for (int i = 0; i < levels.size(); i++)
+		{
+			int level = levels.get(i);
+			if (availableSlots.applyAsInt(level) > 0)
+				return level;
+		}
+		return Constants.NOT_AVAILABLE;
+	}
+}
@@ -5,6 +5,8 @@ package io.gojek.parkinglot.model.strategy;
 
 import java.util.TreeSet;
 
+import io.gojek.parkinglot.constants.Constants;
+
 /**
  * @author vaibhav
  *
@@ -19,20 +21,37 @@ public class NearestFirstParkingStrategy implements ParkingStrategy
 	}
 	
 	@Override
-	public void add(int i)
+	public synchronized void add(int i)
 	{
 		freeSlots.add(i);
 	}
 	
 	@Override
-	public int getSlot()
+	public synchronized int getSlot()
 	{
 		return freeSlots.first();
 	}
 	
 	@Override
-	public void removeSlot(int availableSlot)
+	public synchronized void removeSlot(int availableSlot)
 	{
 		freeSlots.remove(availableSlot);
 	}
+	
+	@Override
+	public synchronized int claimSlot()
+	{
+		Integer slot = freeSlots.pollFirst();
+		return slot == null ? Constants.NOT_AVAILABLE : slot;
+	}
+	
+	@Override
+	public synchronized int claimSlots(int[] slots, int count)
+	{
+		int claimed = 0;
+		Integer slot;
+		while (claimed < count && (slot = freeSlots.pollFirst()) != null)
+			slots[claimed++] = slot;
+		return claimed;
+	}
 }
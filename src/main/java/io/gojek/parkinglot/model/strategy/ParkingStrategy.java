@@ -3,6 +3,10 @@
  */
 package io.gojek.parkinglot.model.strategy;
 
+import java.util.BitSet;
+
+import io.gojek.parkinglot.constants.Constants;
+
 /**
  * @author vaibhav
  *
@@ -14,4 +18,41 @@ public interface ParkingStrategy
 	public int getSlot();
 	
 	public void removeSlot(int slot);
+	
+	/**
+	 * Takes all slots of the set out of the free slots, e.g. the slots of a
+	 * restored snapshot
+	 */
+	public default void removeSlots(BitSet slots)
+	{
+		for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1))
+			removeSlot(slot);
+	}
+	
+	/**
+	 * Atomically takes the slot {@link #getSlot()} would give out of the free
+	 * slots, so that concurrent callers never get the same slot
+	 * 
+	 * @return the claimed slot or Constants.NOT_AVAILABLE if no slot is free
+	 */
+	public int claimSlot();
+	
+	/**
+	 * Claims up to count slots at once in the order {@link #claimSlot()} would
+	 * give them
+	 * 
+	 * @return number of slots claimed into slots[0..n)
+	 */
+	public default int claimSlots(int[] slots, int count)
+	{
+		int claimed = 0;
+		while (claimed < count)
+		{
+			int slot = claimSlot();
+			if (slot == Constants.NOT_AVAILABLE)
+				break;
+			slots[claimed++] = slot;
+		}
+		return claimed;
+	}
 }
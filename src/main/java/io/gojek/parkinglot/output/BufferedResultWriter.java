@@ -0,0 +1,61 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.output;
+
+import java.io.PrintStream;
+
+/**
+ * Collects lines in memory and prints them in batches of batchSize chars, or
+ * when flushed. Used in file mode where printing every result to the console
+ * would dominate the run time.
+ * 
+ * @author vaibhav
+ */
+public class BufferedResultWriter implements ResultWriter
+{
+	public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+	
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	
+	private final PrintStream	printStream;
+	private final int			batchSize;
+	private final StringBuilder	buffer;
+	
+	public BufferedResultWriter(PrintStream printStream)
+	{
+		this(printStream, DEFAULT_BATCH_SIZE);
+	}
+	
+	public BufferedResultWriter(PrintStream printStream, int batchSize)
+	{
+		this.printStream = printStream;
+		this.batchSize = batchSize;
+		this.buffer = new StringBuilder(batchSize + 256);
+	}
+	
+	@Override
+	public synchronized void write(String line)
+	{
+		buffer.append(line).append(LINE_SEPARATOR);
+		if (buffer.length() >= batchSize)
+			flush();
+	}
+	
+	@Override
+	public synchronized void writeStatus(int slot, String registrationNo, String color)
+	{
+		buffer.append(slot).append("\t\t").append(registrationNo).append("\t\t").append(color)
+				.append(LINE_SEPARATOR);
+		if (buffer.length() >= batchSize)
+			flush();
+	}
+	
+	@Override
+	public synchronized void flush()
+	{
+		printStream.append(buffer);
+		printStream.flush();
+		buffer.setLength(0);
+	}
+}
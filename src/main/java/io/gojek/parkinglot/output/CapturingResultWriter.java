@@ -0,0 +1,73 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.output;
+
+/**
+ * Lets each thread capture the lines it writes between {@link #capture()} and
+ * {@link #release()}, so that results of commands run on different threads can
+ * be put back in order. Lines of threads which are not capturing go to the
+ * delegate.
+ * 
+ * @author vaibhav
+ */
+public class CapturingResultWriter implements ResultWriter
+{
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	
+	private final ResultWriter					delegate;
+	private final ThreadLocal<StringBuilder>	captured	= new ThreadLocal<>();
+	
+	public CapturingResultWriter(ResultWriter delegate)
+	{
+		this.delegate = delegate;
+	}
+	
+	/**
+	 * Starts capturing the lines written by the current thread
+	 */
+	public void capture()
+	{
+		captured.set(new StringBuilder());
+	}
+	
+	/**
+	 * Stops capturing for the current thread
+	 * 
+	 * @return the lines captured since {@link #capture()}, each followed by the
+	 *         line separator
+	 */
+	public String release()
+	{
+		StringBuilder buffer = captured.get();
+		captured.remove();
+		return buffer == null ? "" : buffer.toString();
+	}
+	
+	@Override
+	public void write(String line)
+	{
+		StringBuilder buffer = captured.get();
+		if (buffer != null)
+			buffer.append(line).append(LINE_SEPARATOR);
+		else
+			delegate.write(line);
+	}
+	
+	@Override
+	public void writeStatus(int slot, String registrationNo, String color)
+	{
+		StringBuilder buffer = captured.get();
+		if (buffer != null)
+			buffer.append(slot).append("\t\t").append(registrationNo).append("\t\t").append(color)
+					.append(LINE_SEPARATOR);
+		else
+			delegate.writeStatus(slot, registrationNo, color);
+	}
+	
+	@Override
+	public void flush()
+	{
+		delegate.flush();
+	}
+}
@@ -0,0 +1,24 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.output;
+
+/**
+ * Prints every line straight to System.out, for interactive use
+ * 
+ * @author vaibhav
+ */
+public class ConsoleResultWriter implements ResultWriter
+{
+	@Override
+	public void write(String line)
+	{
+		System.out.println(line);
+	}
+	
+	@Override
+	public void flush()
+	{
+		System.out.flush();
+	}
+}
@@ -0,0 +1,31 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.output;
+
+/**
+ * Destination of the results printed by the services
+ * 
+ * @author vaibhav
+ */
+public interface ResultWriter
+{
+	/**
+	 * Writes the line followed by the line separator
+	 */
+	public void write(String line);
+	
+	/**
+	 * Writes a row of the status table, writers which buffer append the values
+	 * without building the line first
+	 */
+	public default void writeStatus(int slot, String registrationNo, String color)
+	{
+		write(slot + "\t\t" + registrationNo + "\t\t" + color);
+	}
+	
+	/**
+	 * Pushes out anything buffered so far
+	 */
+	public void flush();
+}
@@ -3,7 +3,6 @@
  */
 package io.gojek.parkinglot.processor;
 
-import io.gojek.parkinglot.constants.CommandInputMap;
 import io.gojek.parkinglot.exception.ParkingException;
 import io.gojek.parkinglot.service.AbstractService;
 
@@ -17,36 +16,24 @@ public interface AbstractProcessor
 	
 	public void execute(String action) throws ParkingException;
 	
+	/**
+	 * Executes a command already tokenized and validated, so that the input is
+	 * parsed only once
+	 */
+	public void execute(Command command) throws ParkingException;
+	
 	public default boolean validate(String inputString)
 	{
-		// Split the input string to validate command and input value
-		boolean valid = true;
-		try
-		{
-			String[] inputs = inputString.split(" ");
-			int params = CommandInputMap.getCommandsParameterMap().get(inputs[0]);
-			switch (inputs.length)
-			{
-				case 1:
-					if (params != 0) // e.g status -> inputs = 1
-						valid = false;
-					break;
-				case 2:
-					if (params != 1) // create_parking_lot 6 -> inputs = 2
-						valid = false;
-					break;
-				case 3:
-					if (params != 2) // park KA-01-P-333 White -> inputs = 3
-						valid = false;
-					break;
-				default:
-					valid = false;
-			}
-		}
-		catch (Exception e)
-		{
-			valid = false;
-		}
-		return valid;
+		return validate(new Command().load(inputString));
+	}
+	
+	/**
+	 * Validates the command and its number of input values, e.g status -> 0,
+	 * create_parking_lot 6 -> 1, park KA-01-P-333 White -> 2 plus the optional
+	 * level
+	 */
+	public default boolean validate(Command command)
+	{
+		return command.isValid();
 	}
 }
@@ -0,0 +1,279 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.processor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import io.gojek.parkinglot.constants.Opcode;
+
+/**
+ * One input command tokenized in place. The same instance is reused for every
+ * line: the line bytes are copied into an internal buffer and the tokens are
+ * kept as offsets into it, so reading a command does not allocate. Strings are
+ * only created for the parameters which are actually needed as String.
+ * 
+ * Like the String based input the line is trimmed and tokens are separated by a
+ * single space, a line with an empty token is not valid. Tokens which are a name=value option of the command, e.g.
+ * status from=1, are not counted as parameters.
+ * 
+ * @author vaibhav
+ */
+public class Command
+{
+	private static final Charset	CHARSET		= Charset.defaultCharset();
+	private static final int		MAX_TOKENS	= 8;
+	private static final int		MAX_OPTIONS	= 4;
+	
+	private byte[]		line		= new byte[128];
+	private int			length;
+	// the trimmed line
+	private int			lineStart;
+	private int			lineEnd;
+	private final int[]	tokenStart	= new int[MAX_TOKENS];
+	private final int[]	tokenEnd	= new int[MAX_TOKENS];
+	// may be more than MAX_TOKENS, only the first MAX_TOKENS are kept
+	private int			tokenCount;
+	// two spaces in a row
+	private boolean		emptyToken;
+	private Opcode		opcode;
+	// value of each option of the opcode, start is -1 if it was not given
+	private final int[]	optionStart	= new int[MAX_OPTIONS];
+	private final int[]	optionEnd	= new int[MAX_OPTIONS];
+	
+	/**
+	 * Loads the command from length bytes of the buffer starting at offset
+	 */
+	public Command load(ByteBuffer buffer, int offset, int length)
+	{
+		if (line.length < length)
+			line = new byte[Math.max(length, line.length << 1)];
+		buffer.position(offset);
+		buffer.get(line, 0, length);
+		this.length = length;
+		tokenize();
+		return this;
+	}
+	
+	public Command load(String input)
+	{
+		byte[] bytes = input.getBytes(CHARSET);
+		return load(ByteBuffer.wrap(bytes), 0, bytes.length);
+	}
+	
+	private void tokenize()
+	{
+		int start = 0;
+		int end = length;
+		while (start < end && (line[start] & 0xff) <= ' ')
+			start++;
+		while (end > start && (line[end - 1] & 0xff) <= ' ')
+			end--;
+		lineStart = start;
+		lineEnd = end;
+		tokenCount = 0;
+		emptyToken = false;
+		int tokenBegin = start;
+		for (int i = start; i <= end; i++)
+		{
+			if (i == end || line[i] == ' ')
+			{
+				if (i == tokenBegin)
+					emptyToken = true;
+				if (tokenCount < MAX_TOKENS)
+				{
+					tokenStart[tokenCount] = tokenBegin;
+					tokenEnd[tokenCount] = i;
+				}
+				tokenCount++;
+				tokenBegin = i + 1;
+			}
+		}
+		opcode = Opcode.lookup(line, tokenStart[0], tokenEnd[0] - tokenStart[0]);
+		for (int i = 0; i < MAX_OPTIONS; i++)
+			optionStart[i] = -1;
+		if (opcode != null && opcode.getOptionCount() > 0)
+			extractOptions();
+	}
+	
+	/**
+	 * Moves the options out of the parameters, the last value of an option
+	 * given twice is kept
+	 */
+	private void extractOptions()
+	{
+		int stored = Math.min(tokenCount, MAX_TOKENS);
+		int kept = 1;
+		for (int i = 1; i < stored; i++)
+		{
+			int option = opcode.matchOption(line, tokenStart[i], tokenEnd[i] - tokenStart[i]);
+			if (option < 0)
+			{
+				tokenStart[kept] = tokenStart[i];
+				tokenEnd[kept] = tokenEnd[i];
+				kept++;
+			}
+			else
+			{
+				optionStart[option] = tokenStart[i] + opcode.getOption(option).length() + 1;
+				optionEnd[option] = tokenEnd[i];
+			}
+		}
+		tokenCount -= stored - kept;
+	}
+	
+	/**
+	 * @return the opcode or null if it is not a known command
+	 */
+	public Opcode getOpcode()
+	{
+		return opcode;
+	}
+	
+	/**
+	 * @return the command name constant or null if it is not a known command
+	 */
+	public String getName()
+	{
+		return opcode == null ? null : opcode.getCommand();
+	}
+	
+	/**
+	 * @return true if the command is known, has no empty token and has a valid
+	 *         number of parameters
+	 */
+	public boolean isValid()
+	{
+		return opcode != null && !emptyToken && opcode.accepts(getParameterCount());
+	}
+	
+	/**
+	 * @return true if the optional level was given as the last parameter
+	 */
+	public boolean hasLevel()
+	{
+		return opcode != null && opcode.isLevelOptional() && getParameterCount() > opcode.getParameterCount();
+	}
+	
+	/**
+	 * @return the level given as the last parameter, see {@link #hasLevel()}
+	 */
+	public int getLevel()
+	{
+		return getInt(opcode.getParameterCount());
+	}
+	
+	/**
+	 * @return number of values given after the command name
+	 */
+	public int getParameterCount()
+	{
+		return tokenCount - 1;
+	}
+	
+	/**
+	 * @param index
+	 *            0 based index of the value after the command name
+	 */
+	public String getParameter(int index)
+	{
+		checkIndex(index);
+		return new String(line, tokenStart[index + 1], tokenEnd[index + 1] - tokenStart[index + 1], CHARSET);
+	}
+	
+	/**
+	 * Parses the value like Integer.parseInt without creating a String
+	 * 
+	 * @param index
+	 *            0 based index of the value after the command name
+	 */
+	public int getInt(int index)
+	{
+		checkIndex(index);
+		return parseInt(tokenStart[index + 1], tokenEnd[index + 1]);
+	}
+	
+	/**
+	 * @return true if the option of the opcode was given as name=value
+	 */
+	public boolean hasOption(String name)
+	{
+		int option = opcode == null ? -1 : opcode.getOptionIndex(name);
+		return option >= 0 && optionStart[option] >= 0;
+	}
+	
+	/**
+	 * Parses the value of the option like {@link #getInt(int)}
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the option was not given
+	 */
+	public int getOptionInt(String name)
+	{
+		if (!hasOption(name))
+			throw new IllegalArgumentException("option " + name);
+		int option = opcode.getOptionIndex(name);
+		return parseInt(optionStart[option], optionEnd[option]);
+	}
+	
+	private int parseInt(int start, int end)
+	{
+		if (start == end)
+			throw new NumberFormatException("For input string: \"\"");
+		boolean negative = line[start] == '-';
+		int i = (negative || line[start] == '+') ? start + 1 : start;
+		if (i == end)
+			throw new NumberFormatException(
+					"For input string: \"" + new String(line, start, end - start, CHARSET) + "\"");
+		// accumulate negatively to cover Integer.MIN_VALUE
+		int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		int result = 0;
+		for (; i < end; i++)
+		{
+			int digit = line[i] - '0';
+			if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit)
+				throw new NumberFormatException(
+						"For input string: \"" + new String(line, start, end - start, CHARSET) + "\"");
+			result = result * 10 - digit;
+		}
+		return negative ? result : -result;
+	}
+	
+	private void checkIndex(int index)
+	{
+		if (index < 0 || index + 1 >= Math.min(tokenCount, MAX_TOKENS))
+			throw new IndexOutOfBoundsException("parameter " + index);
+	}
+	
+	/**
+	 * @return copy of this command which is not affected by loading the next
+	 *         line
+	 */
+	public Command copy()
+	{
+		Command copy = new Command();
+		copy.line = Arrays.copyOf(line, length);
+		copy.length = length;
+		copy.lineStart = lineStart;
+		copy.lineEnd = lineEnd;
+		System.arraycopy(tokenStart, 0, copy.tokenStart, 0, MAX_TOKENS);
+		System.arraycopy(tokenEnd, 0, copy.tokenEnd, 0, MAX_TOKENS);
+		copy.tokenCount = tokenCount;
+		copy.emptyToken = emptyToken;
+		copy.opcode = opcode;
+		System.arraycopy(optionStart, 0, copy.optionStart, 0, MAX_OPTIONS);
+		System.arraycopy(optionEnd, 0, copy.optionEnd, 0, MAX_OPTIONS);
+		return copy;
+	}
+	
+	/**
+	 * @return the trimmed input line
+	 */
+	@Override
+	public String toString()
+	{
+		return new String(line, lineStart, lineEnd - lineStart, CHARSET);
+	}
+}
@@ -0,0 +1,17 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.processor;
+
+import io.gojek.parkinglot.exception.ParkingException;
+
+/**
+ * Executes one kind of command, see RequestProcessor dispatch table
+ * 
+ * @author vaibhav
+ */
+@FunctionalInterface
+public interface CommandHandler
+{
+	public void handle(Command command) throws ParkingException;
+}
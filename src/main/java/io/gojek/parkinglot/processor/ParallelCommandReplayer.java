@@ -0,0 +1,226 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.processor;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.gojek.parkinglot.constants.Opcode;
+import io.gojek.parkinglot.input.MappedCommandReader;
+import io.gojek.parkinglot.output.CapturingResultWriter;
+import io.gojek.parkinglot.output.ResultWriter;
+
+/**
+ * Replays a command file with the commands split by level. Commands of one
+ * level always run on the same worker in file order, commands of different
+ * levels run in parallel. The output of each command is captured and written
+ * in the original line order.
+ * 
+ * create_parking_lot, park without level and stats may touch every level, they
+ * wait for all earlier commands and run on the reading thread. As a vehicle is
+ * parked on one level only, a park on a level is also ordered with the
+ * commands of every other level the vehicle may be parked on.
+ * 
+ * The service must write its results to the capturing writer given here.
+ * 
+ * @author vaibhav
+ */
+public class ParallelCommandReplayer
+{
+	// results waiting to be written, bounds the memory used by a replay
+	private static final int MAX_PENDING = 8 * 1024;
+	
+	private final AbstractProcessor		processor;
+	private final CapturingResultWriter	capturingWriter;
+	private final ResultWriter			resultWriter;
+	private final int					workerCount;
+	
+	private final ArrayDeque<CompletableFuture<String>> pending = new ArrayDeque<>();
+	// upper cased registration number - partitions it was parked on
+	private final Map<String, BitSet>	parkPartitions	= new HashMap<>();
+	// last command given to each worker
+	private CompletableFuture<?>[]		lastTasks;
+	// parks of other workers the next command of each worker has to wait for
+	private CompletableFuture<?>[]		fences;
+	
+	public ParallelCommandReplayer(AbstractProcessor processor, CapturingResultWriter capturingWriter,
+			ResultWriter resultWriter)
+	{
+		this(processor, capturingWriter, resultWriter, Runtime.getRuntime().availableProcessors());
+	}
+	
+	public ParallelCommandReplayer(AbstractProcessor processor, CapturingResultWriter capturingWriter,
+			ResultWriter resultWriter, int workerCount)
+	{
+		this.processor = processor;
+		this.capturingWriter = capturingWriter;
+		this.resultWriter = resultWriter;
+		this.workerCount = workerCount;
+	}
+	
+	public void replay(MappedCommandReader commandReader) throws IOException
+	{
+		List<ExecutorService> workers = new ArrayList<>();
+		for (int i = 0; i < workerCount; i++)
+			workers.add(Executors.newSingleThreadExecutor());
+		lastTasks = new CompletableFuture<?>[workerCount];
+		fences = new CompletableFuture<?>[workerCount];
+		for (int i = 0; i < workerCount; i++)
+			lastTasks[i] = CompletableFuture.completedFuture(null);
+		parkPartitions.clear();
+		try
+		{
+			Command command = new Command();
+			while (commandReader.next(command))
+			{
+				if (!processor.validate(command))
+				{
+					pending.add(CompletableFuture.completedFuture("Incorrect Command Found at line: "
+							+ commandReader.getLineNo() + " ,Input: " + command + System.lineSeparator()));
+				}
+				else if (isBarrier(command))
+				{
+					drain(0);
+					write(execute(command));
+					// it may be on any level now
+					if (command.getOpcode() == Opcode.PARK)
+						getParkPartitions(command).set(0, workerCount);
+				}
+				else
+				{
+					// the copy is not affected by reading the next line
+					Command task = command.copy();
+					int partition = getPartition(task);
+					BitSet others = getOtherPartitions(task, partition);
+					CompletableFuture<?> predecessors = getPredecessors(partition, others);
+					CompletableFuture<String> result = CompletableFuture.supplyAsync(() -> {
+						if (predecessors != null)
+							predecessors.join();
+						return execute(task);
+					}, workers.get(partition));
+					lastTasks[partition] = result;
+					fences[partition] = null;
+					for (int i = others == null ? -1 : others.nextSetBit(0); i >= 0; i = others.nextSetBit(i + 1))
+						fences[i] = fences[i] == null ? result : CompletableFuture.allOf(fences[i], result);
+					pending.add(result);
+				}
+				drain(MAX_PENDING);
+			}
+			drain(0);
+		}
+		finally
+		{
+			for (ExecutorService worker : workers)
+				worker.shutdownNow();
+		}
+	}
+	
+	private boolean isBarrier(Command command)
+	{
+		return command.getOpcode() == Opcode.CREATE_PARKING_LOT || command.getOpcode() == Opcode.STATS
+				|| command.getOpcode() == Opcode.OCCUPANCY
+				|| ((command.getOpcode() == Opcode.PARK || command.getOpcode() == Opcode.FREE_SLOTS)
+						&& !command.hasLevel());
+	}
+	
+	/**
+	 * A park has to run after the earlier commands and before the later ones of
+	 * every other worker the vehicle may be parked on, as those may free it.
+	 * Waiting only on earlier commands cannot deadlock as each worker runs its
+	 * commands in file order.
+	 * 
+	 * @return the other workers of a park, null for other commands
+	 */
+	private BitSet getOtherPartitions(Command command, int partition)
+	{
+		if (command.getOpcode() != Opcode.PARK)
+			return null;
+		BitSet partitions = getParkPartitions(command);
+		BitSet others = (BitSet) partitions.clone();
+		others.clear(partition);
+		partitions.set(partition);
+		return others;
+	}
+	
+	/**
+	 * @return completes with the commands the next command of the partition
+	 *         has to wait for, null if there are none
+	 */
+	private CompletableFuture<?> getPredecessors(int partition, BitSet others)
+	{
+		List<CompletableFuture<?>> predecessors = new ArrayList<>();
+		if (fences[partition] != null && !fences[partition].isDone())
+			predecessors.add(fences[partition]);
+		for (int i = others == null ? -1 : others.nextSetBit(0); i >= 0; i = others.nextSetBit(i + 1))
+		{
+			if (!lastTasks[i].isDone())
+				predecessors.add(lastTasks[i]);
+		}
+		return predecessors.isEmpty() ? null
+				: CompletableFuture.allOf(predecessors.toArray(new CompletableFuture<?>[0]));
+	}
+	
+	private BitSet getParkPartitions(Command park)
+	{
+		return parkPartitions.computeIfAbsent(park.getParameter(0).toUpperCase(Locale.ENGLISH),
+				key -> new BitSet(workerCount));
+	}
+	
+	/**
+	 * Commands without level work on level 1, a level which is not a number
+	 * only fails so any worker does
+	 */
+	private int getPartition(Command command)
+	{
+		int level = 1;
+		try
+		{
+			if (command.hasLevel())
+				level = command.getLevel();
+		}
+		catch (NumberFormatException e)
+		{
+		}
+		return Math.floorMod(level, workerCount);
+	}
+	
+	private String execute(Command command)
+	{
+		capturingWriter.capture();
+		try
+		{
+			processor.execute(command);
+		}
+		catch (Exception e)
+		{
+			capturingWriter.write(e.getMessage());
+		}
+		return capturingWriter.release();
+	}
+	
+	/**
+	 * Writes results in order until at most max are pending
+	 */
+	private void drain(int max)
+	{
+		while (pending.size() > max)
+			write(pending.poll().join());
+	}
+	
+	private void write(String output)
+	{
+		// captured output already ends with the line separator
+		if (!output.isEmpty())
+			resultWriter.write(output.substring(0, output.length() - System.lineSeparator().length()));
+	}
+}
@@ -3,7 +3,11 @@
  */
 package io.gojek.parkinglot.processor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.constants.Opcode;
 import io.gojek.parkinglot.exception.ErrorCode;
 import io.gojek.parkinglot.exception.ParkingException;
 import io.gojek.parkinglot.model.Car;
@@ -16,7 +20,26 @@ import io.gojek.parkinglot.service.ParkingService;
  */
 public class RequestProcessor implements AbstractProcessor
 {
-	private ParkingService parkingService;
+	private ParkingService			parkingService;
+	// handler of each command indexed by opcode ordinal
+	private final CommandHandler[]	handlers	= new CommandHandler[Opcode.values().length];
+	
+	public RequestProcessor()
+	{
+		handlers[Opcode.CREATE_PARKING_LOT.ordinal()] = this::createParkingLot;
+		handlers[Opcode.PARK.ordinal()] = this::park;
+		handlers[Opcode.LEAVE.ordinal()] = this::leave;
+		handlers[Opcode.STATUS.ordinal()] = this::status;
+		handlers[Opcode.REG_NUMBER_FOR_CARS_WITH_COLOR.ordinal()] = command -> parkingService
+				.getRegNumberForColor(getLevel(command), command.getParameter(0));
+		handlers[Opcode.SLOTS_NUMBER_FOR_CARS_WITH_COLOR.ordinal()] = command -> parkingService
+				.getSlotNumbersFromColor(getLevel(command), command.getParameter(0));
+		handlers[Opcode.SLOTS_NUMBER_FOR_REG_NUMBER.ordinal()] = command -> parkingService
+				.getSlotNoFromRegistrationNo(getLevel(command), command.getParameter(0));
+		handlers[Opcode.STATS.ordinal()] = command -> parkingService.getStats();
+		handlers[Opcode.FREE_SLOTS.ordinal()] = this::freeSlots;
+		handlers[Opcode.OCCUPANCY.ordinal()] = command -> parkingService.getOccupancy();
+	}
 	
 	public void setParkingService(ParkingService parkingService) throws ParkingException
 	{
@@ -26,51 +49,110 @@ public class RequestProcessor implements AbstractProcessor
 	@Override
 	public void execute(String input) throws ParkingException
 	{
-		int level = 1;
-		String[] inputs = input.split(" ");
-		String key = inputs[0];
-		switch (key)
+		execute(new Command().load(input));
+	}
+	
+	@Override
+	public void execute(Command command) throws ParkingException
+	{
+		Opcode opcode = command.getOpcode();
+		if (opcode != null)
+			handlers[opcode.ordinal()].handle(command);
+	}
+	
+	private void createParkingLot(Command command) throws ParkingException
+	{
+		try
+		{
+			// comma separated capacity of each level e.g 6,8,8
+			List<Integer> capacityList = new ArrayList<>();
+			for (String capacity : command.getParameter(0).split(","))
+				capacityList.add(Integer.parseInt(capacity));
+			parkingService.createParkingLot(capacityList);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "capacity"));
+		}
+	}
+	
+	private void park(Command command) throws ParkingException
+	{
+		Car car = new Car(command.getParameter(0), command.getParameter(1));
+		if (command.hasLevel())
+			parkingService.park(getLevel(command), car);
+		else
+			parkingService.park(car);
+	}
+	
+	private void leave(Command command) throws ParkingException
+	{
+		int level = getLevel(command);
+		try
+		{
+			parkingService.unPark(level, command.getInt(0));
+		}
+		catch (NumberFormatException e)
+		{
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "slot_number"));
+		}
+	}
+	
+	/**
+	 * free_slots counts the whole lot, free_slots {level} one level
+	 */
+	private void freeSlots(Command command) throws ParkingException
+	{
+		if (command.hasLevel())
+			parkingService.getFreeSlotsCount(getLevel(command));
+		else
+			parkingService.getFreeSlotsCount();
+	}
+	
+	/**
+	 * status from=<slot> limit=<n> prints one page, from the first slot and
+	 * without limit by default
+	 */
+	private void status(Command command) throws ParkingException
+	{
+		int level = getLevel(command);
+		if (!command.hasOption(Constants.FROM) && !command.hasOption(Constants.LIMIT))
+		{
+			parkingService.getStatus(level);
+			return;
+		}
+		parkingService.getStatus(level, getOption(command, Constants.FROM, 1),
+				getOption(command, Constants.LIMIT, Integer.MAX_VALUE));
+	}
+	
+	private int getOption(Command command, String name, int defaultValue) throws ParkingException
+	{
+		if (!command.hasOption(name))
+			return defaultValue;
+		try
+		{
+			return command.getOptionInt(name);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", name));
+		}
+	}
+	
+	/**
+	 * @return level given as the optional last value, ground level 1 by default
+	 */
+	private int getLevel(Command command) throws ParkingException
+	{
+		if (!command.hasLevel())
+			return 1;
+		try
+		{
+			return command.getLevel();
+		}
+		catch (NumberFormatException e)
 		{
-			case Constants.CREATE_PARKING_LOT:
-				try
-				{
-					int capacity = Integer.parseInt(inputs[1]);
-					parkingService.createParkingLot(level, capacity);
-				}
-				catch (NumberFormatException e)
-				{
-					throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "capacity"));
-				}
-				break;
-			case Constants.PARK:
-				parkingService.park(level, new Car(inputs[1], inputs[2]));
-				break;
-			case Constants.LEAVE:
-				try
-				{
-					int slotNumber = Integer.parseInt(inputs[1]);
-					parkingService.unPark(level, slotNumber);
-				}
-				catch (NumberFormatException e)
-				{
-					throw new ParkingException(
-							ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "slot_number"));
-				}
-				break;
-			case Constants.STATUS:
-				parkingService.getStatus(level);
-				break;
-			case Constants.REG_NUMBER_FOR_CARS_WITH_COLOR:
-				parkingService.getRegNumberForColor(level, inputs[1]);
-				break;
-			case Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR:
-				parkingService.getSlotNumbersFromColor(level, inputs[1]);
-				break;
-			case Constants.SLOTS_NUMBER_FOR_REG_NUMBER:
-				parkingService.getSlotNoFromRegistrationNo(level, inputs[1]);
-				break;
-			default:
-				break;
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "level"));
 		}
 	}
 	
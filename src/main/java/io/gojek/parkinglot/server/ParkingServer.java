@@ -0,0 +1,362 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.gojek.parkinglot.exception.ErrorCode;
+import io.gojek.parkinglot.output.CapturingResultWriter;
+import io.gojek.parkinglot.processor.AbstractProcessor;
+import io.gojek.parkinglot.processor.Command;
+
+/**
+ * Non blocking TCP server speaking the text command protocol of the file
+ * input: one command per line. The response of each command is the output the
+ * command prints followed by an empty line, so clients can pipeline commands
+ * and match the responses in order. exit closes the connection, so does the end
+ * of the input once the responses are sent; a last line without line separator
+ * is executed too.
+ * 
+ * One selector thread reads, splits and writes for all connections. The
+ * commands of a connection are executed in order, one at a time, by a worker
+ * of the executor, so a slow command such as a park waiting for the fsync of
+ * the log or the status of a large lot holds up its own connection only. The
+ * service must write its results to the capturing writer given here.
+ * 
+ * @author vaibhav
+ */
+public class ParkingServer implements Runnable, Closeable
+{
+	public static final int	MAX_LINE_LENGTH			= 8 * 1024;
+	// a connection is not read while this much output is not sent yet
+	public static final int	MAX_PENDING_OUTPUT		= 1024 * 1024;
+	// nor while this many commands wait for the worker
+	public static final int	MAX_PENDING_COMMANDS	= 1024;
+	
+	private static final Charset	CHARSET			= Charset.defaultCharset();
+	private static final String		LINE_SEPARATOR	= System.lineSeparator();
+	
+	private final AbstractProcessor		processor;
+	private final CapturingResultWriter	capturingWriter;
+	private final Selector				selector;
+	private final ServerSocketChannel	serverChannel;
+	private final ExecutorService		executor;
+	// connections a worker added output to, written by the selector thread
+	private final Queue<SelectionKey>	writable	= new ConcurrentLinkedQueue<>();
+	// reused for every line of every connection, only the selector thread uses it
+	private final Command				command		= new Command();
+	
+	/**
+	 * Executes the commands on a cached thread pool closed with the server
+	 */
+	public ParkingServer(AbstractProcessor processor, CapturingResultWriter capturingWriter,
+			InetSocketAddress address) throws IOException
+	{
+		this(processor, capturingWriter, address, Executors.newCachedThreadPool());
+	}
+	
+	/**
+	 * @param executor
+	 *            executes the commands of the connections, shut down when the
+	 *            server is closed
+	 */
+	public ParkingServer(AbstractProcessor processor, CapturingResultWriter capturingWriter,
+			InetSocketAddress address, ExecutorService executor) throws IOException
+	{
+		this.processor = processor;
+		this.executor = executor;
+		this.capturingWriter = capturingWriter;
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(address);
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+	
+	/**
+	 * @return the port the server listens on, useful when bound to port 0
+	 */
+	public int getPort()
+	{
+		return serverChannel.socket().getLocalPort();
+	}
+	
+	/**
+	 * Serves connections until the server is closed
+	 */
+	@Override
+	public void run()
+	{
+		try
+		{
+			while (selector.isOpen())
+			{
+				selector.select();
+				SelectionKey ready;
+				while ((ready = writable.poll()) != null)
+				{
+					try
+					{
+						if (ready.isValid())
+							write(ready);
+					}
+					catch (IOException e)
+					{
+						close(ready);
+					}
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext())
+				{
+					SelectionKey key = keys.next();
+					keys.remove();
+					try
+					{
+						if (!key.isValid())
+							continue;
+						if (key.isAcceptable())
+							accept();
+						if (key.isValid() && key.isReadable())
+							read(key);
+						if (key.isValid() && key.isWritable())
+							write(key);
+					}
+					catch (IOException e)
+					{
+						close(key);
+					}
+				}
+			}
+		}
+		catch (ClosedSelectorException e)
+		{
+			// closed while selecting
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+		}
+	}
+	
+	private void accept() throws IOException
+	{
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null)
+			return;
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ, new Connection());
+	}
+	
+	private void read(SelectionKey key) throws IOException
+	{
+		SocketChannel channel = (SocketChannel) key.channel();
+		Connection connection = (Connection) key.attachment();
+		ByteBuffer input = connection.input;
+		boolean endOfInput = channel.read(input) < 0;
+		// queue every complete line in order, keep the incomplete rest
+		int end = input.position();
+		int lineStart = 0;
+		for (int i = 0; i < end && !connection.closing; i++)
+		{
+			if (input.get(i) == '\n')
+			{
+				submit(connection, lineStart, i - lineStart);
+				lineStart = i + 1;
+			}
+		}
+		if (endOfInput)
+		{
+			// the last line may come without line separator
+			if (!connection.closing && lineStart < end)
+				submit(connection, lineStart, end - lineStart);
+			connection.closing = true;
+		}
+		if (connection.closing)
+			lineStart = end;
+		else if (lineStart == 0 && end == input.capacity())
+			throw new IOException("Line longer than " + MAX_LINE_LENGTH + " bytes");
+		input.limit(end);
+		input.position(lineStart);
+		input.compact();
+		dispatch(key, connection);
+		write(key);
+	}
+	
+	/**
+	 * Queues the line for the worker of the connection, exit stops reading
+	 */
+	private void submit(Connection connection, int offset, int length)
+	{
+		command.load(connection.input, offset, length);
+		if ("exit".equalsIgnoreCase(command.toString()))
+		{
+			connection.closing = true;
+			return;
+		}
+		if (connection.closing && command.toString().isEmpty())
+			return;
+		synchronized (connection)
+		{
+			connection.commands.add(command.copy());
+		}
+	}
+	
+	/**
+	 * Starts a worker for the queued commands unless one is running already
+	 */
+	private void dispatch(SelectionKey key, Connection connection)
+	{
+		synchronized (connection)
+		{
+			if (connection.running || connection.commands.isEmpty())
+				return;
+			connection.running = true;
+		}
+		try
+		{
+			executor.execute(() -> executeAll(key, connection));
+		}
+		catch (RejectedExecutionException e)
+		{
+			// the server is closing
+		}
+	}
+	
+	/**
+	 * Runs on a worker until the queue of the connection is empty
+	 */
+	private void executeAll(SelectionKey key, Connection connection)
+	{
+		while (true)
+		{
+			Command next;
+			synchronized (connection)
+			{
+				next = connection.commands.poll();
+				if (next == null)
+					connection.running = false;
+			}
+			// the selector thread writes the output or closes the connection
+			writable.add(key);
+			selector.wakeup();
+			if (next == null)
+				return;
+			byte[] response = execute(next);
+			synchronized (connection)
+			{
+				connection.append(response);
+			}
+		}
+	}
+	
+	/**
+	 * @return the response to the command
+	 */
+	private byte[] execute(Command command)
+	{
+		capturingWriter.capture();
+		try
+		{
+			if (processor.validate(command))
+				processor.execute(command);
+			else
+				capturingWriter.write("Incorrect Command Found ,Input: " + command);
+		}
+		catch (Exception e)
+		{
+			capturingWriter.write(e.getMessage());
+		}
+		return (capturingWriter.release() + LINE_SEPARATOR).getBytes(CHARSET);
+	}
+	
+	private void write(SelectionKey key) throws IOException
+	{
+		SocketChannel channel = (SocketChannel) key.channel();
+		Connection connection = (Connection) key.attachment();
+		boolean pending;
+		boolean idle;
+		boolean full;
+		synchronized (connection)
+		{
+			ByteBuffer output = connection.output;
+			output.flip();
+			channel.write(output);
+			output.compact();
+			pending = output.position() > 0;
+			idle = !connection.running && connection.commands.isEmpty();
+			full = output.position() >= MAX_PENDING_OUTPUT || connection.commands.size() >= MAX_PENDING_COMMANDS;
+		}
+		if (!pending && idle && connection.closing)
+		{
+			close(key);
+			return;
+		}
+		int ops = pending ? SelectionKey.OP_WRITE : 0;
+		if (!full && !connection.closing)
+			ops |= SelectionKey.OP_READ;
+		key.interestOps(ops);
+	}
+	
+	private void close(SelectionKey key)
+	{
+		key.cancel();
+		try
+		{
+			key.channel().close();
+		}
+		catch (IOException e)
+		{
+		}
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		for (SelectionKey key : selector.keys())
+			key.channel().close();
+		selector.close();
+		executor.shutdown();
+	}
+	
+	private static class Connection
+	{
+		// the selector thread only
+		private final ByteBuffer		input		= ByteBuffer.allocate(MAX_LINE_LENGTH);
+		// exit or the end of the input was read, nothing more is read
+		private boolean					closing;
+		// guarded by the connection
+		private final Queue<Command>	commands	= new ArrayDeque<>();
+		private boolean					running;
+		private ByteBuffer				output		= ByteBuffer.allocate(MAX_LINE_LENGTH);
+		
+		private void append(byte[] bytes)
+		{
+			if (output.remaining() < bytes.length)
+			{
+				ByteBuffer larger = ByteBuffer
+						.allocate(Math.max(output.capacity() << 1, output.position() + bytes.length));
+				output.flip();
+				larger.put(output);
+				output = larger;
+			}
+			output.put(bytes);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import io.gojek.parkinglot.model.ParkingTicket;
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * Non blocking variant of {@link ParkingService}. Nothing is printed, every
+ * call returns its result as a future which completes exceptionally with a
+ * ParkingException (wrapped in a CompletionException) on failure.
+ * 
+ * @author vaibhav
+ */
+public interface AsyncParkingService extends AbstractService
+{
+	/**
+	 * Creates a parking lot with levels 1..n, one per capacity
+	 */
+	public CompletableFuture<Void> createParkingLot(List<Integer> capacityList);
+	
+	/**
+	 * Parks on the level chosen by the level selection strategy
+	 */
+	public CompletableFuture<ParkingTicket> park(Vehicle vehicle);
+	
+	/**
+	 * @return the slot number or Constants.NOT_AVAILABLE /
+	 *         Constants.VEHICLE_ALREADY_EXIST
+	 */
+	public CompletableFuture<Integer> park(int level, Vehicle vehicle);
+	
+	/**
+	 * @return false if the slot was empty already
+	 */
+	public CompletableFuture<Boolean> unPark(int level, int slotNumber);
+	
+	/**
+	 * @return slot number or Constants.NOT_AVAILABLE /
+	 *         Constants.VEHICLE_ALREADY_EXIST for each vehicle
+	 */
+	public CompletableFuture<int[]> parkAll(int level, List<Vehicle> vehicles);
+	
+	/**
+	 * @return false for each slot which was empty already
+	 */
+	public CompletableFuture<boolean[]> leaveAll(int level, int[] slotNumbers);
+	
+	/**
+	 * @return one row per parked vehicle
+	 */
+	public CompletableFuture<List<String>> getStatus(int level);
+	
+	public CompletableFuture<Integer> getAvailableSlotsCount(int level);
+	
+	public CompletableFuture<List<String>> getRegNumberForColor(int level, String color);
+	
+	public CompletableFuture<List<Integer>> getSlotNumbersFromColor(int level, String color);
+	
+	/**
+	 * @return the slot number or Constants.NOT_FOUND
+	 */
+	public CompletableFuture<Integer> getSlotNoFromRegistrationNo(int level, String registrationNo);
+}
@@ -3,6 +3,7 @@
  */
 package io.gojek.parkinglot.service;
 
+import java.util.List;
 import java.util.Optional;
 
 import io.gojek.parkinglot.exception.ParkingException;
@@ -17,12 +18,44 @@ public interface ParkingService extends AbstractService
 	/* ---- Actions ----- */
 	public void createParkingLot(int level, int capacity) throws ParkingException;
 	
+	/**
+	 * Creates a parking lot with levels 1..n, one per capacity
+	 */
+	public void createParkingLot(List<Integer> capacityList) throws ParkingException;
+	
+	/**
+	 * Parks on the level chosen by the level selection strategy
+	 */
+	public Optional<Integer> park(Vehicle vehicle) throws ParkingException;
+	
 	public Optional<Integer> park(int level, Vehicle vehicle) throws ParkingException;
 	
 	public void unPark(int level, int slotNumber) throws ParkingException;
 	
+	/**
+	 * Parks all vehicles on the level taking the level lock once
+	 * 
+	 * @return slot number or Constants.NOT_AVAILABLE /
+	 *         Constants.VEHICLE_ALREADY_EXIST for each vehicle
+	 */
+	public int[] parkAll(int level, List<Vehicle> vehicles) throws ParkingException;
+	
+	/**
+	 * Frees all slots of the level taking the level lock once
+	 * 
+	 * @return false for each slot which was empty already
+	 */
+	public boolean[] leaveAll(int level, int[] slotNumbers) throws ParkingException;
+	
 	public void getStatus(int level) throws ParkingException;
 	
+	/**
+	 * Prints the status of up to limit vehicles from fromSlot on, followed by
+	 * the slot the next page starts from if there are more vehicles. Rows are
+	 * read in pages, each as of one point in time.
+	 */
+	public void getStatus(int level, int fromSlot, int limit) throws ParkingException;
+	
 	public Optional<Integer> getAvailableSlotsCount(int level) throws ParkingException;
 	
 	public void getRegNumberForColor(int level, String color) throws ParkingException;
@@ -31,5 +64,29 @@ public interface ParkingService extends AbstractService
 	
 	public int getSlotNoFromRegistrationNo(int level, String registrationNo) throws ParkingException;
 	
+	/**
+	 * Prints the operation counters and latencies and the occupancy and lock
+	 * wait of each level
+	 */
+	public void getStats() throws ParkingException;
+	
+	/**
+	 * Prints the free slots of the whole lot, read from the counters of the
+	 * levels without locking
+	 */
+	public void getFreeSlotsCount() throws ParkingException;
+	
+	/**
+	 * Prints the free slots of the level without locking
+	 */
+	public void getFreeSlotsCount(int level) throws ParkingException;
+	
+	/**
+	 * Prints the capacity and free slots of each level and of the lot, then
+	 * the number of parked vehicles of each color, all read from counters
+	 * without locking
+	 */
+	public void getOccupancy() throws ParkingException;
+	
 	public void doCleanup();
 }
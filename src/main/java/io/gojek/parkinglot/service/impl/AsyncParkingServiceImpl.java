@@ -0,0 +1,135 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.model.ParkingTicket;
+import io.gojek.parkinglot.model.Vehicle;
+import io.gojek.parkinglot.service.AsyncParkingService;
+
+/**
+ * Runs the non printing operations of {@link ParkingServiceImpl} on an
+ * executor. The same ParkingServiceImpl can be used synchronously at the same
+ * time, both share its level locks.
+ * 
+ * @author vaibhav
+ */
+public class AsyncParkingServiceImpl implements AsyncParkingService
+{
+	private final ParkingServiceImpl	parkingService;
+	private final Executor				executor;
+	
+	/**
+	 * Runs on the common fork join pool
+	 */
+	public AsyncParkingServiceImpl(ParkingServiceImpl parkingService)
+	{
+		this(parkingService, ForkJoinPool.commonPool());
+	}
+	
+	public AsyncParkingServiceImpl(ParkingServiceImpl parkingService, Executor executor)
+	{
+		this.parkingService = parkingService;
+		this.executor = executor;
+	}
+	
+	@Override
+	public CompletableFuture<Void> createParkingLot(List<Integer> capacityList)
+	{
+		return supply(() -> {
+			List<Integer> parkingLevels = new ArrayList<>();
+			for (int i = 1; i <= capacityList.size(); i++)
+				parkingLevels.add(i);
+			parkingService.createParkingLot(parkingLevels, capacityList);
+			return null;
+		});
+	}
+	
+	@Override
+	public CompletableFuture<ParkingTicket> park(Vehicle vehicle)
+	{
+		return supply(() -> parkingService.parkCar(vehicle));
+	}
+	
+	@Override
+	public CompletableFuture<Integer> park(int level, Vehicle vehicle)
+	{
+		return supply(() -> parkingService.parkCar(level, vehicle));
+	}
+	
+	@Override
+	public CompletableFuture<Boolean> unPark(int level, int slotNumber)
+	{
+		return supply(() -> parkingService.leaveCar(level, slotNumber));
+	}
+	
+	@Override
+	public CompletableFuture<int[]> parkAll(int level, List<Vehicle> vehicles)
+	{
+		return supply(() -> parkingService.parkCars(level, vehicles));
+	}
+	
+	@Override
+	public CompletableFuture<boolean[]> leaveAll(int level, int[] slotNumbers)
+	{
+		return supply(() -> parkingService.leaveCars(level, slotNumbers));
+	}
+	
+	@Override
+	public CompletableFuture<List<String>> getStatus(int level)
+	{
+		return supply(() -> parkingService.findStatus(level));
+	}
+	
+	@Override
+	public CompletableFuture<Integer> getAvailableSlotsCount(int level)
+	{
+		return supply(() -> parkingService.getAvailableSlotsCount(level).get());
+	}
+	
+	@Override
+	public CompletableFuture<List<String>> getRegNumberForColor(int level, String color)
+	{
+		return supply(() -> parkingService.findRegNumbersForColor(level, color));
+	}
+	
+	@Override
+	public CompletableFuture<List<Integer>> getSlotNumbersFromColor(int level, String color)
+	{
+		return supply(() -> parkingService.findSlotNumbersForColor(level, color));
+	}
+	
+	@Override
+	public CompletableFuture<Integer> getSlotNoFromRegistrationNo(int level, String registrationNo)
+	{
+		return supply(() -> parkingService.findSlotNoForRegistrationNo(level, registrationNo));
+	}
+	
+	private <T> CompletableFuture<T> supply(ParkingCall<T> call)
+	{
+		return CompletableFuture.supplyAsync(() -> {
+			try
+			{
+				return call.call();
+			}
+			catch (ParkingException e)
+			{
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+	
+	@FunctionalInterface
+	private interface ParkingCall<T>
+	{
+		T call() throws ParkingException;
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.service.impl;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+import io.gojek.parkinglot.wal.WriteAheadLog;
+
+/**
+ * What the services of one lot share with each other: the level locks, so that
+ * their parks and leaves of a level do not overlap, and the log they all write
+ * to with its failure. A service without registry keeps its own.
+ * 
+ * @author vaibhav
+ */
+class LotState
+{
+	// one lock per level so that operations on different levels do not block
+	// each other, reads try without it first
+	private final Map<Integer, StampedLock> levelLocks = new ConcurrentHashMap<>();
+	
+	// mutations are logged here once set by recover
+	volatile WriteAheadLog writeAheadLog = null;
+	
+	// set when a mutation already applied could not be made durable, the lot
+	// refuses further mutations from then on
+	volatile IOException logFailure = null;
+	
+	StampedLock getLock(int level)
+	{
+		return levelLocks.computeIfAbsent(level, key -> new StampedLock());
+	}
+}
@@ -3,21 +3,45 @@
  */
 package io.gojek.parkinglot.service.impl;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.StringJoiner;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 
 import io.gojek.parkinglot.constants.Constants;
 import io.gojek.parkinglot.dao.ParkingDataManager;
+import io.gojek.parkinglot.dao.ParkingLevelDataManager;
+import io.gojek.parkinglot.dao.ParkingLevelDataManagerFactory;
+import io.gojek.parkinglot.dao.ParkingLotRegistry;
+import io.gojek.parkinglot.dao.impl.MemoryParkingLevelManager;
 import io.gojek.parkinglot.dao.impl.MemoryParkingManager;
+import io.gojek.parkinglot.event.ParkingEventStream;
 import io.gojek.parkinglot.exception.ErrorCode;
 import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.metrics.ParkingMetrics;
+import io.gojek.parkinglot.metrics.ParkingMetrics.Operation;
+import io.gojek.parkinglot.metrics.ParkingMetrics.Outcome;
+import io.gojek.parkinglot.model.ColorDictionary;
+import io.gojek.parkinglot.model.ParkingTicket;
 import io.gojek.parkinglot.model.Vehicle;
-import io.gojek.parkinglot.model.strategy.NearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.BitmapNearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.LevelSelectionStrategy;
+import io.gojek.parkinglot.model.strategy.LowestLevelFirstStrategy;
 import io.gojek.parkinglot.model.strategy.ParkingStrategy;
+import io.gojek.parkinglot.output.ConsoleResultWriter;
+import io.gojek.parkinglot.output.ResultWriter;
 import io.gojek.parkinglot.service.ParkingService;
+import io.gojek.parkinglot.wal.LogRecordHandler;
+import io.gojek.parkinglot.wal.SnapshotStore;
+import io.gojek.parkinglot.wal.WriteAheadLog;
 
 /**
  * 
@@ -29,40 +53,277 @@ import io.gojek.parkinglot.service.ParkingService;
  */
 public class ParkingServiceImpl implements ParkingService
 {
-	private ParkingDataManager<Vehicle> dataManager = null;
+	// status rows read and validated together, then written
+	private static final int STATUS_PAGE_SIZE = 1024;
+	// lock free attempts of a read before it takes the level read lock
+	private static final int OPTIMISTIC_READS = 4;
 	
-	private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private volatile ParkingDataManager<Vehicle> dataManager = null;
+	
+	// set when the lot is shared through a registry
+	private ParkingLotRegistry<Vehicle>	registry	= null;
+	private String						lotId		= null;
+	
+	// level locks and log of the lot, in the registry when there is one
+	private final LotState lotState = new LotState();
+	
+	private LevelSelectionStrategy levelSelectionStrategy = new LowestLevelFirstStrategy();
+	
+	private ParkingLevelDataManagerFactory<Vehicle> levelManagerFactory = this::newMemoryLevel;
+	
+	// levels of the default factory publish their parks and leaves here
+	private volatile ParkingEventStream eventStream = null;
+	
+	// results are written outside of the level locks
+	private ResultWriter resultWriter = new ConsoleResultWriter();
+	
+	private final ParkingMetrics metrics = new ParkingMetrics(this::refreshDataManager);
+	
+	public ParkingServiceImpl()
+	{
+	}
+	
+	public ParkingServiceImpl(ParkingDataManager<Vehicle> dataManager)
+	{
+		this.dataManager = dataManager;
+	}
+	
+	/**
+	 * Serves the lot registered with lotId, createParkingLot registers the lot
+	 * and doCleanup removes it from the registry. The lot is looked up on every
+	 * call, so the service sees the lot created or removed by another service
+	 * on the same id, and shares the level locks and the log with it.
+	 */
+	public ParkingServiceImpl(ParkingLotRegistry<Vehicle> registry, String lotId)
+	{
+		this.registry = registry;
+		this.lotId = lotId;
+	}
+	
+	/**
+	 * @return the lot as it is in the registry now, the lot of the service
+	 *         without registry
+	 */
+	private ParkingDataManager<Vehicle> refreshDataManager()
+	{
+		if (registry != null)
+			dataManager = registry.get(lotId);
+		return dataManager;
+	}
+	
+	private LotState getLotState()
+	{
+		return registry == null ? lotState : registry.getState(lotId, LotState.class, LotState::new);
+	}
 	
 	@Override
-	public void createParkingLot(int level, int capacity) throws ParkingException
+	public synchronized void createParkingLot(int level, int capacity) throws ParkingException
 	{
-		if (dataManager != null)
-			throw new ParkingException(ErrorCode.PARKING_ALREADY_EXIST.getMessage());
+		createParkingLot(Collections.singletonList(level), Collections.singletonList(capacity));
+		resultWriter.write("Created parking lot with " + capacity + " slots");
+	}
+	
+	@Override
+	public synchronized void createParkingLot(List<Integer> capacityList) throws ParkingException
+	{
+		if (capacityList.size() == 1)
+		{
+			createParkingLot(1, capacityList.get(0));
+			return;
+		}
 		List<Integer> parkingLevels = new ArrayList<>();
-		List<Integer> capacityList = new ArrayList<>();
+		int capacity = 0;
+		for (int i = 0; i < capacityList.size(); i++)
+		{
+			parkingLevels.add(i + 1);
+			capacity += capacityList.get(i);
+		}
+		createParkingLot(parkingLevels, capacityList);
+		resultWriter.write(
+				"Created parking lot with " + parkingLevels.size() + " levels and " + capacity + " slots");
+	}
+	
+	/**
+	 * Creates the lot without printing, levels are given by parkingLevels
+	 */
+	public synchronized void createParkingLot(List<Integer> parkingLevels, List<Integer> capacityList)
+			throws ParkingException
+	{
+		newParkingLot(parkingLevels, capacityList);
+		WriteAheadLog log = getLotState().writeAheadLog;
+		if (log != null)
+		{
+			try
+			{
+				awaitDurable(log.logCreate(parkingLevels, capacityList));
+			}
+			catch (IOException e)
+			{
+				throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+			}
+		}
+	}
+	
+	private void newParkingLot(List<Integer> parkingLevels, List<Integer> capacityList) throws ParkingException
+	{
+		if (refreshDataManager() != null)
+			throw new ParkingException(ErrorCode.PARKING_ALREADY_EXIST.getMessage());
 		List<ParkingStrategy> parkingStrategies = new ArrayList<>();
-		parkingLevels.add(level);
-		capacityList.add(capacity);
-		parkingStrategies.add(new NearestFirstParkingStrategy());
-		this.dataManager = MemoryParkingManager.getInstance(parkingLevels, capacityList, parkingStrategies);
-		System.out.println("Created parking lot with " + capacity + " slots");
+		for (Integer capacity : capacityList)
+		{
+			// the levels size their arrays by the capacity
+			if (capacity < 1 || capacity == Integer.MAX_VALUE)
+				throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "capacity"));
+			parkingStrategies.add(new BitmapNearestFirstParkingStrategy(capacity));
+		}
+		ParkingDataManager<Vehicle> parkingLot = new MemoryParkingManager<>(parkingLevels, capacityList,
+				parkingStrategies, levelManagerFactory);
+		if (registry != null && registry.register(lotId, parkingLot) != null)
+			throw new ParkingException(ErrorCode.PARKING_ALREADY_EXIST.getMessage());
+		this.dataManager = parkingLot;
+	}
+	
+	/**
+	 * @param resultWriter
+	 *            destination of the results, the console by default
+	 */
+	public void setResultWriter(ResultWriter resultWriter)
+	{
+		this.resultWriter = resultWriter;
+	}
+	
+	/**
+	 * @param levelSelectionStrategy
+	 *            chooses the level for {@link #park(Vehicle)}
+	 */
+	public void setLevelSelectionStrategy(LevelSelectionStrategy levelSelectionStrategy)
+	{
+		this.levelSelectionStrategy = levelSelectionStrategy;
+	}
+	
+	private ParkingLevelDataManager<Vehicle> newMemoryLevel(int level, int capacity,
+			ParkingStrategy parkingStrategy, ColorDictionary colorDictionary)
+	{
+		MemoryParkingLevelManager<Vehicle> levelManager = new MemoryParkingLevelManager<>(level, capacity,
+				parkingStrategy, colorDictionary);
+		levelManager.setEventStream(eventStream);
+		return levelManager;
+	}
+	
+	/**
+	 * Lets consumers such as billing follow the lot without polling status
+	 * 
+	 * @param eventStream
+	 *            receives the parks and leaves of the lots created from now on
+	 *            with the default level manager factory
+	 */
+	public void setEventStream(ParkingEventStream eventStream)
+	{
+		this.eventStream = eventStream;
+	}
+	
+	/**
+	 * @param levelManagerFactory
+	 *            creates the levels of the lots created from now on
+	 */
+	public void setLevelManagerFactory(ParkingLevelDataManagerFactory<Vehicle> levelManagerFactory)
+	{
+		this.levelManagerFactory = levelManagerFactory;
 	}
 	
 	@Override
-	public Optional<Integer> park(int level, Vehicle vehicle) throws ParkingException
+	public Optional<Integer> park(Vehicle vehicle) throws ParkingException
 	{
-		Optional<Integer> value = Optional.empty();
-		lock.writeLock().lock();
+		ParkingTicket ticket = parkCar(vehicle);
+		int slot = ticket.getSlot();
+		if (slot == Constants.NOT_AVAILABLE)
+			resultWriter.write("Sorry, parking lot is full");
+		else if (slot == Constants.VEHICLE_ALREADY_EXIST)
+			resultWriter.write("Sorry, vehicle is already parked.");
+		else if (dataManager.getLevels().size() == 1)
+			resultWriter.write("Allocated slot number: " + slot);
+		else
+			resultWriter.write("Allocated slot number: " + slot + " on level " + ticket.getLevel());
+		return Optional.of(slot);
+	}
+	
+	/**
+	 * Parks on the level chosen by the level selection strategy without
+	 * printing
+	 */
+	public ParkingTicket parkCar(Vehicle vehicle) throws ParkingException
+	{
+		long start = System.nanoTime();
 		validateParkingLot();
+		List<Integer> levels = dataManager.getLevels();
+		for (Integer level : levels)
+		{
+			if (dataManager.getSlotNoFromRegistrationNo(level, vehicle.getRegistrationNo()) != Constants.NOT_FOUND)
+				return new ParkingTicket(level, recordPark(start, Constants.VEHICLE_ALREADY_EXIST));
+		}
+		// a level may fill up between selecting and parking, then select again
+		int level;
+		while ((level = levelSelectionStrategy.selectLevel(levels,
+				selected -> dataManager.getAvailableSlotsCount(selected))) != Constants.NOT_AVAILABLE)
+		{
+			int slot = parkOnLevel(level, vehicle);
+			if (slot != Constants.NOT_AVAILABLE)
+				return new ParkingTicket(level, recordPark(start, slot));
+		}
+		return new ParkingTicket(Constants.NOT_AVAILABLE, recordPark(start, Constants.NOT_AVAILABLE));
+	}
+	
+	@Override
+	public Optional<Integer> park(int level, Vehicle vehicle) throws ParkingException
+	{
+		int slot = parkCar(level, vehicle);
+		if (slot == Constants.NOT_AVAILABLE)
+			resultWriter.write("Sorry, parking lot is full");
+		else if (slot == Constants.VEHICLE_ALREADY_EXIST)
+			resultWriter.write("Sorry, vehicle is already parked.");
+		else
+			resultWriter.write("Allocated slot number: " + slot);
+		return Optional.of(slot);
+	}
+	
+	/**
+	 * Parks on the level without printing
+	 * 
+	 * @return the slot number or Constants.NOT_AVAILABLE /
+	 *         Constants.VEHICLE_ALREADY_EXIST
+	 */
+	public int parkCar(int level, Vehicle vehicle) throws ParkingException
+	{
+		long start = System.nanoTime();
+		return recordPark(start, parkOnLevel(level, vehicle));
+	}
+	
+	private int recordPark(long start, int slot)
+	{
+		if (slot == Constants.NOT_AVAILABLE)
+			metrics.count(Outcome.LOT_FULL);
+		else if (slot == Constants.VEHICLE_ALREADY_EXIST)
+			metrics.count(Outcome.ALREADY_PARKED);
+		metrics.record(Operation.PARK, start);
+		return slot;
+	}
+	
+	private int parkOnLevel(int level, Vehicle vehicle) throws ParkingException
+	{
+		validateParkingLot(level);
+		Lock writeLock = getLock(level).asWriteLock();
+		lock(writeLock, level);
+		int slot;
+		long lsn;
 		try
 		{
-			value = Optional.of(dataManager.parkCar(level, vehicle));
-			if (value.get() == Constants.NOT_AVAILABLE)
-				System.out.println("Sorry, parking lot is full");
-			else if (value.get() == Constants.VEHICLE_ALREADY_EXIST)
-				System.out.println("Sorry, vehicle is already parked.");
-			else
-				System.out.println("Allocated slot number: " + value.get());
+			checkDurable();
+			slot = dataManager.parkCar(level, vehicle);
+			lsn = slot > 0 ? logParkOrUndo(level, slot, vehicle) : 0;
+		}
+		catch (ParkingException e)
+		{
+			throw e;
 		}
 		catch (Exception e)
 		{
@@ -70,9 +331,362 @@ public class ParkingServiceImpl implements ParkingService
 		}
 		finally
 		{
-			lock.writeLock().unlock();
+			writeLock.unlock();
+		}
+		awaitDurable(lsn);
+		return slot;
+	}
+	
+	/**
+	 * Rebuilds the lot from the log and logs every later mutation to it. The
+	 * records are appended under the level lock so that the log has the order
+	 * of execution, callers wait for the fsync after releasing it.
+	 */
+	public void recover(WriteAheadLog log) throws ParkingException
+	{
+		recover(null, log);
+	}
+	
+	/**
+	 * Rebuilds the lot from the latest snapshot and the log after it, then logs
+	 * every later mutation to the log
+	 */
+	public synchronized void recover(SnapshotStore snapshots, WriteAheadLog log) throws ParkingException
+	{
+		try
+		{
+			LogRecordHandler handler = new LogRecordHandler()
+			{
+				@Override
+				public void create(List<Integer> parkingLevels, List<Integer> capacityList) throws ParkingException
+				{
+					newParkingLot(parkingLevels, capacityList);
+				}
+				
+				@Override
+				public void park(int level, int slotNumber, Vehicle vehicle) throws ParkingException
+				{
+					validateParkingLot(level);
+					dataManager.restoreCar(level, slotNumber, vehicle);
+				}
+				
+				@Override
+				public void parkAll(int level, int[] slotNumbers, List<Vehicle> vehicles) throws ParkingException
+				{
+					validateParkingLot(level);
+					dataManager.restoreAll(level, slotNumbers, vehicles);
+				}
+				
+				@Override
+				public void leave(int level, int slotNumber) throws ParkingException
+				{
+					validateParkingLot(level);
+					dataManager.leaveCar(level, slotNumber);
+				}
+			};
+			long lsn = snapshots == null ? 0 : snapshots.load(handler);
+			log.replay(lsn, handler);
+		}
+		catch (IOException e)
+		{
+			throw new ParkingException(ErrorCode.INVALID_FILE.getMessage(), e);
+		}
+		// the lot is what the log has again
+		getLotState().logFailure = null;
+		getLotState().writeAheadLog = log;
+	}
+	
+	/**
+	 * Writes a snapshot of the lot and deletes the log before it. Parks and
+	 * leaves go on meanwhile, only their fsync may wait for the roll of the log
+	 * to a new segment.
+	 */
+	public void checkpoint(SnapshotStore snapshots) throws ParkingException
+	{
+		WriteAheadLog log = getLotState().writeAheadLog;
+		ParkingDataManager<Vehicle> parkingLot = refreshDataManager();
+		if (log == null || parkingLot == null)
+			return;
+		try
+		{
+			long lsn = log.roll();
+			snapshots.write(lsn, parkingLot);
+			log.deleteBefore(lsn);
+		}
+		catch (IOException e)
+		{
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * @return log position of the record, 0 without log
+	 */
+	private long logPark(int level, int slotNumber, Vehicle vehicle) throws ParkingException
+	{
+		WriteAheadLog log = getLotState().writeAheadLog;
+		try
+		{
+			return log == null ? 0 : log.logPark(level, slotNumber, vehicle);
+		}
+		catch (IOException e)
+		{
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
 		}
-		return value;
+	}
+	
+	/**
+	 * Logs the park or, if it can not be logged, frees the slot again so that
+	 * the lot does not hold a vehicle the log does not know of
+	 */
+	private long logParkOrUndo(int level, int slotNumber, Vehicle vehicle) throws ParkingException
+	{
+		try
+		{
+			return logPark(level, slotNumber, vehicle);
+		}
+		catch (ParkingException e)
+		{
+			dataManager.leaveCar(level, slotNumber);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Logs the leave or, if it can not be logged, puts the vehicle back
+	 */
+	private long logLeaveOrUndo(int level, int slotNumber, Vehicle vehicle) throws ParkingException
+	{
+		try
+		{
+			return logLeave(level, slotNumber);
+		}
+		catch (ParkingException e)
+		{
+			dataManager.restoreCar(level, slotNumber, vehicle);
+			throw e;
+		}
+	}
+	
+	private long logLeave(int level, int slotNumber) throws ParkingException
+	{
+		WriteAheadLog log = getLotState().writeAheadLog;
+		try
+		{
+			return log == null ? 0 : log.logLeave(level, slotNumber);
+		}
+		catch (IOException e)
+		{
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Waits until the log is forced up to lsn when the log is synchronous. The
+	 * mutation is applied and the level lock released by then, so it can not
+	 * be undone if the log fails: the lot is marked failed instead and refuses
+	 * every later mutation, see {@link #checkDurable()}.
+	 */
+	private void awaitDurable(long lsn) throws ParkingException
+	{
+		LotState state = getLotState();
+		WriteAheadLog log = state.writeAheadLog;
+		if (lsn == 0 || log == null || !log.isSynchronous())
+			return;
+		try
+		{
+			log.awaitDurable(lsn);
+		}
+		catch (IOException e)
+		{
+			state.logFailure = e;
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Fails once a mutation of the lot could not be made durable, so that no
+	 * mutation builds on one the log may not have. Called under the level lock.
+	 */
+	private void checkDurable() throws ParkingException
+	{
+		IOException failure = getLotState().logFailure;
+		if (failure != null)
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), failure);
+	}
+	
+	private StampedLock getLock(int level)
+	{
+		return getLotState().getLock(level);
+	}
+	
+	/**
+	 * Runs the read without the level lock and keeps its result if no park or
+	 * leave of the level took the lock meanwhile. A read overlapped by a write
+	 * is tried again the same way up to OPTIMISTIC_READS times before it runs
+	 * under the read lock, so readers hold up parks and leaves only on a level
+	 * busy enough to overlap all of those attempts.
+	 */
+	private <R> R read(int level, Supplier<R> read) throws ParkingException
+	{
+		StampedLock lock = getLock(level);
+		for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++)
+		{
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0)
+			{
+				// a write is in progress, give it the time to finish
+				Thread.yield();
+				continue;
+			}
+			try
+			{
+				R result = read.get();
+				if (lock.validate(stamp))
+					return result;
+			}
+			catch (RuntimeException e)
+			{
+				// a read overlapping a write may trip over what it saw
+				if (lock.validate(stamp))
+					throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+			}
+			metrics.count(Outcome.READ_RETRY);
+		}
+		Lock readLock = lock.asReadLock();
+		lock(readLock, level);
+		try
+		{
+			return read.get();
+		}
+		catch (Exception e)
+		{
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+	
+	/**
+	 * Locks and records the wait, the clock is read only when the lock is
+	 * contended
+	 */
+	private void lock(Lock lock, int level)
+	{
+		if (lock.tryLock())
+		{
+			metrics.recordLockWait(level, 0);
+			return;
+		}
+		long start = System.nanoTime();
+		lock.lock();
+		metrics.recordLockWait(level, System.nanoTime() - start);
+	}
+	
+	/**
+	 * @return counters, latencies and occupancy, also registered with JMX by
+	 *         Main
+	 */
+	public ParkingMetrics getMetrics()
+	{
+		return metrics;
+	}
+	
+	@Override
+	public void getStats()
+	{
+		for (String line : metrics.report())
+			resultWriter.write(line);
+	}
+	
+	@Override
+	public void getFreeSlotsCount() throws ParkingException
+	{
+		resultWriter.write(String.valueOf(findFreeSlotsCount()));
+	}
+	
+	@Override
+	public void getFreeSlotsCount(int level) throws ParkingException
+	{
+		resultWriter.write(String.valueOf(findFreeSlotsCount(level)));
+	}
+	
+	/**
+	 * @return free slots of the whole lot, nothing is printed
+	 */
+	public int findFreeSlotsCount() throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot();
+		int free = dataManager.getAvailableSlotsCount();
+		metrics.record(Operation.FREE_SLOTS, start);
+		return free;
+	}
+	
+	/**
+	 * The counter is read as it is, like {@link #getAvailableSlotsCount(int)}
+	 * does when no park or leave overlaps it
+	 * 
+	 * @return free slots of the level, nothing is printed
+	 */
+	public int findFreeSlotsCount(int level) throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot(level);
+		int free = dataManager.getAvailableSlotsCount(level);
+		metrics.record(Operation.FREE_SLOTS, start);
+		return free;
+	}
+	
+	/**
+	 * @return vehicles of the color parked on any level, matched ignoring
+	 *         case, nothing is printed
+	 */
+	public int findColorCount(String color) throws ParkingException
+	{
+		validateParkingLot();
+		int count = 0;
+		for (int level : dataManager.getLevels())
+			count += dataManager.getColorCount(level, color);
+		return count;
+	}
+	
+	/**
+	 * @return vehicles parked on any level per color in color order, nothing
+	 *         is printed
+	 */
+	public Map<String, Integer> findColorCounts() throws ParkingException
+	{
+		validateParkingLot();
+		Map<String, Integer> colorCounts = new TreeMap<>();
+		for (int level : dataManager.getLevels())
+			dataManager.getColorCounts(level).forEach((color, count) -> colorCounts.merge(color, count, Integer::sum));
+		return colorCounts;
+	}
+	
+	@Override
+	public void getOccupancy() throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot();
+		resultWriter.write("Level\tCapacity\tFree");
+		int capacity = 0;
+		int free = 0;
+		for (int level : dataManager.getLevels())
+		{
+			int levelCapacity = dataManager.getCapacity(level);
+			int levelFree = dataManager.getAvailableSlotsCount(level);
+			resultWriter.write(level + "\t" + levelCapacity + "\t" + levelFree);
+			capacity += levelCapacity;
+			free += levelFree;
+		}
+		resultWriter.write("Total\t" + capacity + "\t" + free);
+		resultWriter.write("Color\tParked");
+		for (Map.Entry<String, Integer> colorCount : findColorCounts().entrySet())
+			resultWriter.write(colorCount.getKey() + "\t" + colorCount.getValue());
+		metrics.record(Operation.OCCUPANCY, start);
 	}
 	
 	/**
@@ -80,24 +694,56 @@ public class ParkingServiceImpl implements ParkingService
 	 */
 	private void validateParkingLot() throws ParkingException
 	{
-		if (dataManager == null)
+		if (refreshDataManager() == null)
 		{
 			throw new ParkingException(ErrorCode.PARKING_NOT_EXIST_ERROR.getMessage());
 		}
 	}
 	
+	/**
+	 * @throws ParkingException
+	 */
+	private void validateParkingLot(int level) throws ParkingException
+	{
+		validateParkingLot();
+		if (!dataManager.getLevels().contains(level))
+		{
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "level"));
+		}
+	}
+	
 	@Override
 	public void unPark(int level, int slotNumber) throws ParkingException
 	{
-		lock.writeLock().lock();
-		validateParkingLot();
+		if (leaveCar(level, slotNumber))
+			resultWriter.write("Slot number " + slotNumber + " is free");
+		else
+			resultWriter.write("Slot number is Empty Already.");
+	}
+	
+	/**
+	 * Frees the slot without printing
+	 * 
+	 * @return false if the slot was empty already
+	 */
+	public boolean leaveCar(int level, int slotNumber) throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot(level);
+		Lock writeLock = getLock(level).asWriteLock();
+		lock(writeLock, level);
+		boolean left;
+		long lsn;
 		try
 		{
-			
-			if (dataManager.leaveCar(level, slotNumber))
-				System.out.println("Slot number " + slotNumber + " is free");
-			else
-				System.out.println("Slot number is Empty Already.");
+			checkDurable();
+			Vehicle vehicle = dataManager.removeCar(level, slotNumber);
+			left = vehicle != null;
+			lsn = left ? logLeaveOrUndo(level, slotNumber, vehicle) : 0;
+		}
+		catch (ParkingException e)
+		{
+			throw e;
 		}
 		catch (Exception e)
 		{
@@ -105,135 +751,363 @@ public class ParkingServiceImpl implements ParkingService
 		}
 		finally
 		{
-			lock.writeLock().unlock();
+			writeLock.unlock();
 		}
+		awaitDurable(lsn);
+		if (!left)
+			metrics.count(Outcome.SLOT_EMPTY);
+		metrics.record(Operation.LEAVE, start);
+		return left;
 	}
 	
 	@Override
-	public void getStatus(int level) throws ParkingException
+	public int[] parkAll(int level, List<Vehicle> vehicles) throws ParkingException
 	{
-		lock.readLock().lock();
-		validateParkingLot();
-		try
+		int[] slots = parkCars(level, vehicles);
+		for (int slot : slots)
 		{
-			System.out.println("Slot No.\tRegistration No.\tColor");
-			List<String> statusList = dataManager.getStatus(level);
-			if (statusList.size() == 0)
-				System.out.println("Sorry, parking lot is empty.");
+			if (slot == Constants.NOT_AVAILABLE)
+				resultWriter.write("Sorry, parking lot is full");
+			else if (slot == Constants.VEHICLE_ALREADY_EXIST)
+				resultWriter.write("Sorry, vehicle is already parked.");
 			else
+				resultWriter.write("Allocated slot number: " + slot);
+		}
+		return slots;
+	}
+	
+	/**
+	 * Parks all vehicles on the level under one write lock without printing
+	 */
+	public int[] parkCars(int level, List<Vehicle> vehicles) throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot(level);
+		Lock writeLock = getLock(level).asWriteLock();
+		lock(writeLock, level);
+		int[] slots;
+		long lsn = 0;
+		try
+		{
+			checkDurable();
+			slots = dataManager.parkAll(level, vehicles);
+			for (int i = 0; i < slots.length; i++)
 			{
-				for (String statusSting : statusList)
+				try
 				{
-					System.out.println(statusSting);
+					if (slots[i] > 0)
+						lsn = logParkOrUndo(level, slots[i], vehicles.get(i));
+				}
+				catch (ParkingException e)
+				{
+					// the parks logged before stay
+					for (int j = i + 1; j < slots.length; j++)
+					{
+						if (slots[j] > 0)
+							dataManager.leaveCar(level, slots[j]);
+					}
+					throw e;
 				}
 			}
 		}
+		catch (ParkingException e)
+		{
+			throw e;
+		}
 		catch (Exception e)
 		{
 			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
 		}
 		finally
 		{
-			lock.readLock().unlock();
+			writeLock.unlock();
 		}
+		// one wait for the whole batch
+		awaitDurable(lsn);
+		metrics.record(Operation.PARK_ALL, start);
+		return slots;
 	}
 	
-	public Optional<Integer> getAvailableSlotsCount(int level) throws ParkingException
+	@Override
+	public boolean[] leaveAll(int level, int[] slotNumbers) throws ParkingException
 	{
-		lock.readLock().lock();
-		Optional<Integer> value = Optional.empty();
-		validateParkingLot();
+		boolean[] left = leaveCars(level, slotNumbers);
+		for (int i = 0; i < left.length; i++)
+		{
+			if (left[i])
+				resultWriter.write("Slot number " + slotNumbers[i] + " is free");
+			else
+				resultWriter.write("Slot number is Empty Already.");
+		}
+		return left;
+	}
+	
+	/**
+	 * Frees all slots of the level under one write lock without printing
+	 */
+	public boolean[] leaveCars(int level, int[] slotNumbers) throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot(level);
+		Lock writeLock = getLock(level).asWriteLock();
+		lock(writeLock, level);
+		boolean[] left = new boolean[slotNumbers.length];
+		long lsn = 0;
 		try
 		{
-			value = Optional.of(dataManager.getAvailableSlotsCount(level));
+			checkDurable();
+			List<Vehicle> vehicles = dataManager.removeAll(level, slotNumbers);
+			for (int i = 0; i < left.length; i++)
+			{
+				left[i] = vehicles.get(i) != null;
+				try
+				{
+					if (left[i])
+						lsn = logLeaveOrUndo(level, slotNumbers[i], vehicles.get(i));
+				}
+				catch (ParkingException e)
+				{
+					// the leaves logged before stay
+					for (int j = i + 1; j < left.length; j++)
+					{
+						if (vehicles.get(j) != null)
+							dataManager.restoreCar(level, slotNumbers[j], vehicles.get(j));
+					}
+					throw e;
+				}
+			}
+		}
+		catch (ParkingException e)
+		{
+			throw e;
 		}
 		catch (Exception e)
 		{
-			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "slot_number"), e);
 		}
 		finally
 		{
-			lock.readLock().unlock();
+			writeLock.unlock();
 		}
-		return value;
+		awaitDurable(lsn);
+		metrics.record(Operation.LEAVE_ALL, start);
+		return left;
 	}
 	
+	/**
+	 * Streams the rows to the result writer a page of STATUS_PAGE_SIZE rows
+	 * at a time, each page read as of one point in time
+	 */
 	@Override
-	public void getRegNumberForColor(int level, String color) throws ParkingException
+	public void getStatus(int level) throws ParkingException
 	{
-		lock.readLock().lock();
-		validateParkingLot();
+		long start = System.nanoTime();
+		validateParkingLot(level);
+		resultWriter.write("Slot No.\tRegistration No.\tColor");
+		StatusPage page = new StatusPage(STATUS_PAGE_SIZE);
+		writeStatus(level, 1, Integer.MAX_VALUE, page);
+		if (page.count == 0)
+			resultWriter.write("Sorry, parking lot is empty.");
+		metrics.record(Operation.STATUS, start);
+	}
+	
+	@Override
+	public void getStatus(int level, int fromSlot, int limit) throws ParkingException
+	{
+		long start = System.nanoTime();
+		if (fromSlot < 1)
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", Constants.FROM));
+		if (limit < 1)
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", Constants.LIMIT));
+		validateParkingLot(level);
+		resultWriter.write("Slot No.\tRegistration No.\tColor");
+		StatusPage page = new StatusPage(Math.min(limit, STATUS_PAGE_SIZE));
+		int next = writeStatus(level, fromSlot, limit, page);
+		if (page.count == 0)
+			resultWriter.write(fromSlot == 1 ? "Sorry, parking lot is empty."
+					: "Sorry, no vehicle is parked from slot " + fromSlot + ".");
+		if (next != Constants.NOT_FOUND)
+			resultWriter.write("Next slot: " + next);
+		metrics.record(Operation.STATUS, start);
+	}
+	
+	/**
+	 * Each page is read without the level lock where possible, validated on
+	 * its own and written before the next one is read, so only one page is
+	 * held at a time and a long status holds up parks and leaves at most for
+	 * the read of a page. Each page is a snapshot but the whole status is not:
+	 * a vehicle moved by parks and leaves between two pages can be listed on
+	 * both or on neither.
+	 * 
+	 * @return the slot to continue from or Constants.NOT_FOUND
+	 */
+	private int writeStatus(int level, int fromSlot, int limit, StatusPage page) throws ParkingException
+	{
+		int next = fromSlot;
+		while (page.count < limit && next != Constants.NOT_FOUND)
+		{
+			int pageStart = next;
+			int pageLimit = Math.min(limit - page.count, STATUS_PAGE_SIZE);
+			next = read(level, () -> {
+				page.clear();
+				return dataManager.forEachCar(level, pageStart, pageLimit, page);
+			});
+			page.writeTo(resultWriter);
+		}
+		return next;
+	}
+	
+	/**
+	 * Holds the vehicles of one page until the read is known to be consistent
+	 * and counts the rows written
+	 */
+	private static class StatusPage implements ObjIntConsumer<Vehicle>
+	{
+		private final Vehicle[]	vehicles;
+		private final int[]		slots;
+		private int				size	= 0;
+		private int				count	= 0;
+		
+		private StatusPage(int capacity)
+		{
+			vehicles = new Vehicle[capacity];
+			slots = new int[capacity];
+		}
+		
+		@Override
+		public void accept(Vehicle vehicle, int slot)
+		{
+			vehicles[size] = vehicle;
+			slots[size++] = slot;
+		}
+		
+		private void clear()
+		{
+			size = 0;
+		}
+		
+		private void writeTo(ResultWriter resultWriter)
+		{
+			for (int i = 0; i < size; i++)
+				resultWriter.writeStatus(slots[i], vehicles[i].getRegistrationNo(), vehicles[i].getColor());
+			count += size;
+		}
+	}
+	
+	/**
+	 * @return one row per parked vehicle without the header, nothing is
+	 *         printed
+	 */
+	public List<String> findStatus(int level) throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot(level);
 		try
 		{
-			List<String> registrationList = dataManager.getRegNumberForColor(level, color);
-			if (registrationList.size() == 0)
-				System.out.println("Not Found");
-			else
-				System.out.println(String.join(",", registrationList));
+			return read(level, () -> dataManager.getStatus(level));
 		}
-		catch (Exception e)
+		finally
 		{
-			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+			metrics.record(Operation.STATUS, start);
+		}
+	}
+	
+	public Optional<Integer> getAvailableSlotsCount(int level) throws ParkingException
+	{
+		validateParkingLot(level);
+		return Optional.of(read(level, () -> dataManager.getAvailableSlotsCount(level)));
+	}
+	
+	@Override
+	public void getRegNumberForColor(int level, String color) throws ParkingException
+	{
+		List<String> registrationList = findRegNumbersForColor(level, color);
+		if (registrationList.size() == 0)
+			resultWriter.write("Not Found");
+		else
+			resultWriter.write(String.join(",", registrationList));
+	}
+	
+	/**
+	 * @return registration numbers of the cars of the color, nothing is printed
+	 */
+	public List<String> findRegNumbersForColor(int level, String color) throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot(level);
+		try
+		{
+			return read(level, () -> dataManager.getRegNumberForColor(level, color));
 		}
 		finally
 		{
-			lock.readLock().unlock();
+			metrics.record(Operation.REG_NUMBER_FOR_CARS_WITH_COLOR, start);
 		}
 	}
 	
 	@Override
 	public void getSlotNumbersFromColor(int level, String color) throws ParkingException
 	{
-		lock.readLock().lock();
-		validateParkingLot();
-		try
+		List<Integer> slotList = findSlotNumbersForColor(level, color);
+		if (slotList.size() == 0)
+			resultWriter.write("Not Found");
+		StringJoiner joiner = new StringJoiner(",");
+		for (Integer slot : slotList)
 		{
-			List<Integer> slotList = dataManager.getSlotNumbersFromColor(level, color);
-			if (slotList.size() == 0)
-				System.out.println("Not Found");
-			StringJoiner joiner = new StringJoiner(",");
-			for (Integer slot : slotList)
-			{
-				joiner.add(slot + "");
-			}
-			System.out.println(joiner.toString());
+			joiner.add(slot + "");
 		}
-		catch (Exception e)
+		resultWriter.write(joiner.toString());
+	}
+	
+	/**
+	 * @return slot numbers of the cars of the color, nothing is printed
+	 */
+	public List<Integer> findSlotNumbersForColor(int level, String color) throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot(level);
+		try
 		{
-			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+			return read(level, () -> dataManager.getSlotNumbersFromColor(level, color));
 		}
 		finally
 		{
-			lock.readLock().unlock();
+			metrics.record(Operation.SLOTS_NUMBER_FOR_CARS_WITH_COLOR, start);
 		}
 	}
 	
 	@Override
 	public int getSlotNoFromRegistrationNo(int level, String registrationNo) throws ParkingException
 	{
-		int value = -1;
-		lock.readLock().lock();
-		validateParkingLot();
+		int value = findSlotNoForRegistrationNo(level, registrationNo);
+		resultWriter.write(value != -1 ? String.valueOf(value) : "Not Found");
+		return value;
+	}
+	
+	/**
+	 * @return the slot number or Constants.NOT_FOUND, nothing is printed
+	 */
+	public int findSlotNoForRegistrationNo(int level, String registrationNo) throws ParkingException
+	{
+		long start = System.nanoTime();
+		validateParkingLot(level);
 		try
 		{
-			value = dataManager.getSlotNoFromRegistrationNo(level, registrationNo);
-			System.out.println(value != -1 ? value : "Not Found");
-		}
-		catch (Exception e)
-		{
-			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+			return read(level, () -> dataManager.getSlotNoFromRegistrationNo(level, registrationNo));
 		}
 		finally
 		{
-			lock.readLock().unlock();
+			metrics.record(Operation.SLOTS_NUMBER_FOR_REG_NUMBER, start);
 		}
-		return value;
 	}
 	
 	@Override
 	public void doCleanup()
 	{
-		if (dataManager != null)
+		if (registry != null)
+			registry.remove(lotId);
+		else if (dataManager != null)
 			dataManager.doCleanup();
+		dataManager = null;
 	}
 }
@@ -0,0 +1,33 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.wal;
+
+import java.util.List;
+
+import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * Receives the records of a {@link WriteAheadLog} in log order on replay
+ * 
+ * @author vaibhav
+ */
+public interface LogRecordHandler
+{
+	public void create(List<Integer> parkingLevels, List<Integer> capacityList) throws ParkingException;
+	
+	public void park(int level, int slotNumber, Vehicle vehicle) throws ParkingException;
+	
+	/**
+	 * Receives the vehicles of one level of a snapshot in ascending slot order
+	 * instead of a park per vehicle
+	 */
+	public default void parkAll(int level, int[] slotNumbers, List<Vehicle> vehicles) throws ParkingException
+	{
+		for (int i = 0; i < slotNumbers.length; i++)
+			park(level, slotNumbers[i], vehicles.get(i));
+	}
+	
+	public void leave(int level, int slotNumber) throws ParkingException;
+}
@@ -0,0 +1,240 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.wal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import io.gojek.parkinglot.dao.ParkingDataManager;
+import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * Binary snapshots of a parking lot, named after the log position the log has
+ * to be replayed from. A snapshot is
+ * [magic][lsn][level count]([level][capacity])* then per level the parked
+ * vehicles as [slot][registration no][color] ended by slot 0, and a crc32 of
+ * everything before it. Strings are written as an unsigned short length and
+ * UTF-8 bytes. The free slots are the slots not in the snapshot.
+ * 
+ * The snapshot is taken without locking the lot, so it may mix the states
+ * before and after mutations made while it was written. Those mutations are in
+ * the log after the snapshot position, replaying them with redo semantics
+ * gives the exact state.
+ * 
+ * @author vaibhav
+ */
+public class SnapshotStore
+{
+	private static final int	MAGIC	= 0x504c5331;
+	private static final String	SUFFIX	= ".snapshot";
+	
+	private final Path directory;
+	
+	public SnapshotStore(Path directory) throws IOException
+	{
+		this.directory = Files.createDirectories(directory);
+	}
+	
+	/**
+	 * Writes the snapshot of the lot for log position lsn and deletes the older
+	 * snapshots. The snapshot is only visible once completely on disk.
+	 */
+	public void write(long lsn, ParkingDataManager<Vehicle> parkingLot) throws IOException
+	{
+		Path snapshot = snapshotPath(lsn);
+		Path temporary = directory.resolve(snapshot.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			CRC32 crc = new CRC32();
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					new CheckedOutputStream(Channels.newOutputStream(channel), crc), 64 * 1024));
+			List<Integer> levels = parkingLot.getLevels();
+			out.writeInt(MAGIC);
+			out.writeLong(lsn);
+			out.writeInt(levels.size());
+			for (Integer level : levels)
+			{
+				out.writeInt(level);
+				out.writeInt(parkingLot.getCapacity(level));
+			}
+			try
+			{
+				for (Integer level : levels)
+				{
+					parkingLot.forEachCar(level, (vehicle, slot) -> {
+						try
+						{
+							out.writeInt(slot);
+							writeString(out, vehicle.getRegistrationNo());
+							writeString(out, vehicle.getColor());
+						}
+						catch (IOException e)
+						{
+							throw new UncheckedIOException(e);
+						}
+					});
+					out.writeInt(0);
+				}
+			}
+			catch (UncheckedIOException e)
+			{
+				throw e.getCause();
+			}
+			out.flush();
+			out.writeInt((int) crc.getValue());
+			out.flush();
+			channel.force(true);
+		}
+		Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+		for (Long older : getSnapshots())
+		{
+			if (older < lsn)
+				Files.deleteIfExists(snapshotPath(older));
+		}
+	}
+	
+	/**
+	 * Passes the latest snapshot to the handler as a create record followed by
+	 * the vehicles of each level
+	 * 
+	 * @return log position to replay the log from, 0 without snapshot
+	 */
+	public long load(LogRecordHandler handler) throws IOException, ParkingException
+	{
+		List<Long> snapshots = getSnapshots();
+		if (snapshots.isEmpty())
+			return 0;
+		long lsn = snapshots.get(snapshots.size() - 1);
+		Path snapshot = snapshotPath(lsn);
+		// mapped and read once, the checksum is computed on the mapping
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if (size < 4 || size > Integer.MAX_VALUE)
+				throw new IOException("Invalid snapshot " + snapshot);
+			ByteBuffer in = channel.map(MapMode.READ_ONLY, 0, size);
+			// checked first so that nothing of a corrupt snapshot is applied
+			if (!hasValidChecksum(in))
+				throw new IOException("Corrupt snapshot " + snapshot);
+			if (in.getInt() != MAGIC || in.getLong() != lsn)
+				throw new IOException("Invalid snapshot " + snapshot);
+			int levelCount = in.getInt();
+			List<Integer> parkingLevels = new ArrayList<>();
+			List<Integer> capacityList = new ArrayList<>();
+			for (int i = 0; i < levelCount; i++)
+			{
+				parkingLevels.add(in.getInt());
+				capacityList.add(in.getInt());
+			}
+			if (levelCount > 0)
+				handler.create(parkingLevels, capacityList);
+			byte[] bytes = new byte[256];
+			for (Integer level : parkingLevels)
+			{
+				int[] slots = new int[64];
+				List<Vehicle> vehicles = new ArrayList<>();
+				int slot;
+				while ((slot = in.getInt()) != 0)
+				{
+					if (vehicles.size() == slots.length)
+						slots = Arrays.copyOf(slots, slots.length << 1);
+					slots[vehicles.size()] = slot;
+					String registrationNo = readString(in, bytes);
+					vehicles.add(new Car(registrationNo, readString(in, bytes)));
+				}
+				// a level at once, so that it is filled in one pass
+				handler.parkAll(level, Arrays.copyOf(slots, vehicles.size()), vehicles);
+			}
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException("Invalid snapshot " + snapshot, e);
+		}
+		return lsn;
+	}
+	
+	/**
+	 * Checks the crc32 at the end of the snapshot and leaves the buffer at the
+	 * start without the crc32
+	 */
+	private static boolean hasValidChecksum(ByteBuffer snapshot)
+	{
+		int length = snapshot.limit() - 4;
+		int expected = snapshot.getInt(length);
+		CRC32 crc = new CRC32();
+		snapshot.limit(length);
+		crc.update(snapshot);
+		snapshot.position(0);
+		return expected == (int) crc.getValue();
+	}
+	
+	private static void writeString(DataOutputStream out, String value) throws IOException
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > 0xffff)
+			throw new IOException("Value longer than " + 0xffff + " bytes");
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static String readString(ByteBuffer in, byte[] bytes)
+	{
+		int length = in.getShort() & 0xffff;
+		if (bytes.length < length)
+			bytes = new byte[length];
+		in.get(bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * @return log positions of the complete snapshots in ascending order
+	 */
+	private List<Long> getSnapshots() throws IOException
+	{
+		List<Long> snapshots = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX))
+		{
+			for (Path file : files)
+			{
+				String name = file.getFileName().toString();
+				try
+				{
+					snapshots.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+				}
+				catch (NumberFormatException e)
+				{
+					// not a snapshot
+				}
+			}
+		}
+		snapshots.sort(null);
+		return snapshots;
+	}
+	
+	private Path snapshotPath(long lsn)
+	{
+		return directory.resolve(String.format("%020d", lsn) + SUFFIX);
+	}
+}
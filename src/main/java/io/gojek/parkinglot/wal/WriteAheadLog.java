@@ -0,0 +1,508 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.wal;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.Vehicle;
+
+/**
+ * Append only log of the mutations of a parking lot, kept in a directory as
+ * segment files named after the log position they start at. Each record is
+ * [length][crc32][type][payload], a torn record at the end of the last segment
+ * (crash during a write) is cut off when the log is opened.
+ * 
+ * Records are appended to a memory buffer and made durable by group commit:
+ * the first caller of {@link #awaitDurable(long)} writes and forces everything
+ * appended so far, callers arriving meanwhile wait and are covered by the next
+ * force, so many mutations share one fsync.
+ * 
+ * In synchronous mode callers wait for their records to be forced. Otherwise
+ * a background thread forces the log and a crash may lose the records of the
+ * last flushInterval millis.
+ * 
+ * {@link #roll()} starts a new segment so that the segments before a snapshot
+ * can be deleted with {@link #deleteBefore(long)}.
+ * 
+ * @author vaibhav
+ */
+public class WriteAheadLog implements Closeable
+{
+	public static final long	DEFAULT_FLUSH_INTERVAL	= 10;
+	
+	private static final byte	CREATE	= 1;
+	private static final byte	PARK	= 2;
+	private static final byte	LEAVE	= 3;
+	
+	private static final int	HEADER_SIZE		= 8;
+	private static final int	MAX_RECORD_SIZE	= 1024 * 1024;
+	// strings are logged with an unsigned short length
+	private static final int	MAX_STRING_SIZE	= 0xffff;
+	private static final String	SEGMENT_SUFFIX	= ".log";
+	
+	private final Path		directory;
+	private final boolean	synchronous;
+	private final CRC32		crc	= new CRC32();
+	// current segment, only used by the thread flushing
+	private FileChannel		channel;
+	
+	// records appended but not written yet, swapped with spare while flushing
+	private ByteBuffer	buffer	= ByteBuffer.allocate(64 * 1024);
+	private ByteBuffer	spare	= ByteBuffer.allocate(64 * 1024);
+	// log positions: end of the last appended record and of the forced part
+	private long		appendedLsn;
+	private long		durableLsn;
+	private boolean		flushing;
+	private IOException	failure;
+	private boolean		closed;
+	private Thread		flusher;
+	
+	public WriteAheadLog(Path directory, boolean synchronous) throws IOException
+	{
+		this(directory, synchronous, DEFAULT_FLUSH_INTERVAL);
+	}
+	
+	public WriteAheadLog(Path directory, boolean synchronous, long flushInterval) throws IOException
+	{
+		this.directory = Files.createDirectories(directory);
+		this.synchronous = synchronous;
+		List<Long> segments = getSegments();
+		long base = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+		channel = openSegment(base);
+		long end;
+		try
+		{
+			end = scan(base, 0, null);
+		}
+		catch (ParkingException e)
+		{
+			// only thrown by a handler
+			throw new IOException(e);
+		}
+		if (end < channel.size())
+			channel.truncate(end);
+		channel.position(end);
+		appendedLsn = base + end;
+		durableLsn = appendedLsn;
+		if (!synchronous)
+		{
+			flusher = new Thread(() -> flushPeriodically(flushInterval), "wal-flusher");
+			flusher.setDaemon(true);
+			flusher.start();
+		}
+	}
+	
+	/**
+	 * @return true if callers have to wait for their records to be forced
+	 */
+	public boolean isSynchronous()
+	{
+		return synchronous;
+	}
+	
+	/**
+	 * Passes every record of the log to the handler in log order
+	 */
+	public void replay(LogRecordHandler handler) throws IOException, ParkingException
+	{
+		replay(0, handler);
+	}
+	
+	/**
+	 * Passes the records from log position fromLsn on to the handler in log
+	 * order
+	 */
+	public void replay(long fromLsn, LogRecordHandler handler) throws IOException, ParkingException
+	{
+		List<Long> segments = getSegments();
+		for (int i = 0; i < segments.size(); i++)
+		{
+			long base = segments.get(i);
+			if (i + 1 < segments.size() && segments.get(i + 1) <= fromLsn)
+				continue;
+			scan(base, Math.max(0, fromLsn - base), handler);
+		}
+	}
+	
+	/**
+	 * @return log position to wait for with {@link #awaitDurable(long)}
+	 */
+	public synchronized long logCreate(List<Integer> parkingLevels, List<Integer> capacityList) throws IOException
+	{
+		int start = beginRecord(CREATE, 4 + 8 * parkingLevels.size());
+		buffer.putInt(parkingLevels.size());
+		for (int i = 0; i < parkingLevels.size(); i++)
+			buffer.putInt(parkingLevels.get(i)).putInt(capacityList.get(i));
+		return endRecord(start);
+	}
+	
+	public synchronized long logPark(int level, int slotNumber, Vehicle vehicle) throws IOException
+	{
+		byte[] registrationNo = vehicle.getRegistrationNo().getBytes(StandardCharsets.UTF_8);
+		byte[] color = vehicle.getColor().getBytes(StandardCharsets.UTF_8);
+		if (registrationNo.length > MAX_STRING_SIZE || color.length > MAX_STRING_SIZE)
+			throw new IOException("Vehicle values longer than " + MAX_STRING_SIZE + " bytes can not be logged");
+		int start = beginRecord(PARK, 12 + registrationNo.length + color.length);
+		buffer.putInt(level).putInt(slotNumber);
+		buffer.putShort((short) registrationNo.length).put(registrationNo);
+		buffer.putShort((short) color.length).put(color);
+		return endRecord(start);
+	}
+	
+	public synchronized long logLeave(int level, int slotNumber) throws IOException
+	{
+		int start = beginRecord(LEAVE, 8);
+		buffer.putInt(level).putInt(slotNumber);
+		return endRecord(start);
+	}
+	
+	private int beginRecord(byte type, int payloadSize) throws IOException
+	{
+		if (closed)
+			throw new IOException("Write ahead log is closed");
+		if (failure != null)
+			throw failure;
+		int recordSize = HEADER_SIZE + 1 + payloadSize;
+		if (buffer.remaining() < recordSize)
+		{
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() << 1, buffer.position() + recordSize));
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+		int start = buffer.position();
+		buffer.position(start + HEADER_SIZE);
+		buffer.put(type);
+		return start;
+	}
+	
+	private long endRecord(int start)
+	{
+		int end = buffer.position();
+		int length = end - start - HEADER_SIZE;
+		crc.reset();
+		crc.update(buffer.array(), start + HEADER_SIZE, length);
+		buffer.putInt(start, length);
+		buffer.putInt(start + 4, (int) crc.getValue());
+		appendedLsn += end - start;
+		notifyAll();
+		return appendedLsn;
+	}
+	
+	/**
+	 * Returns once the log is forced up to lsn, see group commit above
+	 */
+	public void awaitDurable(long lsn) throws IOException
+	{
+		while (true)
+		{
+			synchronized (this)
+			{
+				awaitFlush(lsn);
+				if (durableLsn >= lsn)
+					return;
+				if (failure != null)
+					throw failure;
+				// become the leader of the next group
+				flushing = true;
+			}
+			flush(false);
+		}
+	}
+	
+	/**
+	 * Forces the log and continues it in a new segment
+	 * 
+	 * @return log position the new segment starts at
+	 */
+	public long roll() throws IOException
+	{
+		synchronized (this)
+		{
+			awaitFlush(Long.MAX_VALUE);
+			if (failure != null)
+				throw failure;
+			flushing = true;
+		}
+		return flush(true);
+	}
+	
+	/**
+	 * Deletes the segments which end before lsn, lsn should be a position
+	 * returned by {@link #roll()}
+	 */
+	public void deleteBefore(long lsn) throws IOException
+	{
+		List<Long> segments = getSegments();
+		for (int i = 0; i + 1 < segments.size() && segments.get(i + 1) <= lsn; i++)
+			Files.deleteIfExists(segmentPath(segments.get(i)));
+	}
+	
+	private void awaitFlush(long lsn) throws IOException
+	{
+		try
+		{
+			while (durableLsn < lsn && flushing)
+				wait();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+	
+	/**
+	 * Writes and forces everything appended so far, the caller has set
+	 * flushing
+	 * 
+	 * @return the log position forced
+	 */
+	private long flush(boolean roll) throws IOException
+	{
+		ByteBuffer batch;
+		long target;
+		synchronized (this)
+		{
+			batch = buffer;
+			buffer = spare;
+			target = appendedLsn;
+		}
+		IOException error = null;
+		try
+		{
+			batch.flip();
+			while (batch.hasRemaining())
+				channel.write(batch);
+			channel.force(false);
+			if (roll)
+			{
+				channel.close();
+				channel = openSegment(target);
+			}
+		}
+		catch (IOException e)
+		{
+			error = e;
+		}
+		synchronized (this)
+		{
+			batch.clear();
+			spare = batch;
+			flushing = false;
+			if (error == null)
+				durableLsn = target;
+			else
+				failure = error;
+			notifyAll();
+		}
+		if (error != null)
+			throw error;
+		return target;
+	}
+	
+	private void flushPeriodically(long flushInterval)
+	{
+		try
+		{
+			while (true)
+			{
+				long lsn;
+				synchronized (this)
+				{
+					while (!closed && appendedLsn == durableLsn)
+						wait();
+					if (closed)
+						return;
+					lsn = appendedLsn;
+				}
+				awaitDurable(lsn);
+				Thread.sleep(flushInterval);
+			}
+		}
+		catch (InterruptedException | IOException e)
+		{
+			// closed or failed, appends report the failure
+		}
+	}
+	
+	/**
+	 * @return start positions of the segments in ascending order
+	 */
+	private List<Long> getSegments() throws IOException
+	{
+		List<Long> segments = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX))
+		{
+			for (Path file : files)
+			{
+				String name = file.getFileName().toString();
+				try
+				{
+					segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+				}
+				catch (NumberFormatException e)
+				{
+					// not a segment
+				}
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+	
+	private Path segmentPath(long base)
+	{
+		return directory.resolve(String.format("%020d", base) + SEGMENT_SUFFIX);
+	}
+	
+	private FileChannel openSegment(long base) throws IOException
+	{
+		FileChannel segment = FileChannel.open(segmentPath(base), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		segment.position(segment.size());
+		return segment;
+	}
+	
+	/**
+	 * Reads the records of a segment, those starting before skip bytes are not
+	 * passed to the handler
+	 * 
+	 * @return the end of the last complete record in the segment
+	 */
+	private long scan(long base, long skip, LogRecordHandler handler) throws IOException, ParkingException
+	{
+		long end = 0;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				Channels.newInputStream(FileChannel.open(segmentPath(base), StandardOpenOption.READ))));
+		try
+		{
+			CRC32 recordCrc = new CRC32();
+			byte[] record = new byte[256];
+			while (true)
+			{
+				int length;
+				int checksum;
+				try
+				{
+					length = in.readInt();
+					checksum = in.readInt();
+					if (length < 1 || length > MAX_RECORD_SIZE)
+						break;
+					if (record.length < length)
+						record = new byte[Math.max(length, record.length << 1)];
+					in.readFully(record, 0, length);
+				}
+				catch (EOFException e)
+				{
+					break;
+				}
+				recordCrc.reset();
+				recordCrc.update(record, 0, length);
+				if ((int) recordCrc.getValue() != checksum)
+					break;
+				if (handler != null && end >= skip)
+					dispatch(ByteBuffer.wrap(record, 0, length), handler);
+				end += HEADER_SIZE + length;
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		return end;
+	}
+	
+	private void dispatch(ByteBuffer record, LogRecordHandler handler) throws ParkingException
+	{
+		switch (record.get())
+		{
+			case CREATE:
+				int levels = record.getInt();
+				List<Integer> parkingLevels = new ArrayList<>();
+				List<Integer> capacityList = new ArrayList<>();
+				for (int i = 0; i < levels; i++)
+				{
+					parkingLevels.add(record.getInt());
+					capacityList.add(record.getInt());
+				}
+				handler.create(parkingLevels, capacityList);
+				break;
+			case PARK:
+				int level = record.getInt();
+				int slotNumber = record.getInt();
+				String registrationNo = getString(record);
+				handler.park(level, slotNumber, new Car(registrationNo, getString(record)));
+				break;
+			case LEAVE:
+				handler.leave(record.getInt(), record.getInt());
+				break;
+			default:
+				break;
+		}
+	}
+	
+	private static String getString(ByteBuffer record)
+	{
+		byte[] bytes = new byte[record.getShort() & 0xffff];
+		record.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Forces every appended record and closes the file
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		long lsn;
+		synchronized (this)
+		{
+			if (closed)
+				return;
+			closed = true;
+			lsn = appendedLsn;
+			notifyAll();
+		}
+		try
+		{
+			awaitDurable(lsn);
+		}
+		finally
+		{
+			if (flusher != null)
+			{
+				flusher.interrupt();
+				try
+				{
+					flusher.join();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+			channel.close();
+		}
+	}
+}
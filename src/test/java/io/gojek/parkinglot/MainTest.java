@@ -6,6 +6,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Optional;
 
 import org.junit.After;
 import org.junit.Before;
@@ -16,6 +18,8 @@ import org.junit.rules.ExpectedException;
 import io.gojek.parkinglot.exception.ErrorCode;
 import io.gojek.parkinglot.exception.ParkingException;
 import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.strategy.LeastLoadedLevelStrategy;
+import io.gojek.parkinglot.processor.RequestProcessor;
 import io.gojek.parkinglot.service.ParkingService;
 import io.gojek.parkinglot.service.impl.ParkingServiceImpl;
 
@@ -252,4 +256,102 @@ public class MainTest
 		instance.doCleanup();
 		
 	}
+	
+	@Test
+	public void testMultiLevelParking() throws Exception
+	{
+		ParkingService instance = new ParkingServiceImpl();
+		instance.createParkingLot(Arrays.asList(2, 3));
+		instance.park(new Car("KA-01-HH-1234", "White"));
+		instance.park(new Car("KA-01-HH-9999", "White"));
+		instance.park(new Car("KA-01-BB-0001", "Black"));
+		instance.park(new Car("KA-01-HH-9999", "White"));
+		instance.park(2, new Car("KA-01-HH-7777", "Red"));
+		instance.getSlotNoFromRegistrationNo(2, "KA-01-BB-0001");
+		assertEquals(Optional.of(1), instance.getAvailableSlotsCount(2));
+		assertEquals("Createdparkinglotwith2levelsand5slots\nAllocatedslotnumber:1onlevel1\n"
+				+ "Allocatedslotnumber:2onlevel1\nAllocatedslotnumber:1onlevel2\nSorry,vehicleisalreadyparked.\n"
+				+ "Allocatedslotnumber:2\n1", outContent.toString().trim().replace(" ", ""));
+		instance.doCleanup();
+	}
+	
+	@Test
+	public void testLeastLoadedLevelParking() throws Exception
+	{
+		ParkingServiceImpl instance = new ParkingServiceImpl();
+		instance.setLevelSelectionStrategy(new LeastLoadedLevelStrategy());
+		instance.createParkingLot(Arrays.asList(2, 3));
+		instance.park(new Car("KA-01-HH-1234", "White"));
+		instance.park(new Car("KA-01-HH-9999", "White"));
+		instance.park(new Car("KA-01-BB-0001", "Black"));
+		assertEquals(Optional.of(1), instance.getAvailableSlotsCount(1));
+		assertEquals(Optional.of(1), instance.getAvailableSlotsCount(2));
+		instance.doCleanup();
+	}
+	
+	@Test
+	public void testStatusPages() throws Exception
+	{
+		RequestProcessor processor = new RequestProcessor();
+		processor.setService(new ParkingServiceImpl());
+		for (String input : Arrays.asList("create_parking_lot 6", "park KA-01-HH-1234 White",
+				"park KA-01-HH-9999 White", "park KA-01-BB-0001 Black", "park KA-01-HH-7777 Red",
+				"park KA-01-HH-2701 Blue", "leave 2"))
+			processor.execute(input);
+		outContent.reset();
+		processor.execute("status limit=2");
+		processor.execute("status from=4 limit=2 1");
+		processor.execute("status from=6");
+		assertEquals("SlotNo.\tRegistrationNo.\tColor\n1\t\tKA-01-HH-1234\t\tWhite\n3\t\tKA-01-BB-0001\t\tBlack\n"
+				+ "Nextslot:4\nSlotNo.\tRegistrationNo.\tColor\n4\t\tKA-01-HH-7777\t\tRed\n5\t\tKA-01-HH-2701\t\tBlue\n"
+				+ "SlotNo.\tRegistrationNo.\tColor\nSorry,novehicleisparkedfromslot6.",
+				outContent.toString().trim().replace(" ", "").replace(System.lineSeparator(), "\n"));
+		thrown.expect(ParkingException.class);
+		thrown.expectMessage(is(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "limit")));
+		processor.execute("status limit=0");
+	}
+	
+	@Test
+	public void rejectCapacityBelowOne() throws Exception
+	{
+		RequestProcessor processor = new RequestProcessor();
+		processor.setService(new ParkingServiceImpl());
+		thrown.expect(ParkingException.class);
+		thrown.expectMessage(is(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "capacity")));
+		processor.execute("create_parking_lot 6,-5");
+	}
+	
+	@Test
+	public void testOccupancy() throws Exception
+	{
+		RequestProcessor processor = new RequestProcessor();
+		processor.setService(new ParkingServiceImpl());
+		for (String input : Arrays.asList("create_parking_lot 3,2", "park KA-01-HH-1234 Maroon",
+				"park KA-01-HH-9999 maroon", "park KA-01-BB-0001 Black", "park KA-01-HH-7777 Maroon 2",
+				"leave 3"))
+			processor.execute(input);
+		outContent.reset();
+		processor.execute("free_slots");
+		processor.execute("free_slots 2");
+		processor.execute("occupancy");
+		assertEquals("2\n1\nLevel\tCapacity\tFree\n1\t3\t1\n2\t2\t1\nTotal\t5\t2\nColor\tParked\nMaroon\t3",
+				outContent.toString().trim().replace(" ", "").replace(System.lineSeparator(), "\n"));
+	}
+	
+	@Test
+	public void testParkOnTwoLevels() throws Exception
+	{
+		RequestProcessor processor = new RequestProcessor();
+		processor.setService(new ParkingServiceImpl());
+		processor.execute("create_parking_lot 2,2");
+		outContent.reset();
+		processor.execute("park KA-01-HH-1234 White");
+		processor.execute("park ka-01-hh-1234 White 2");
+		processor.execute("slot_number_for_registration_number KA-01-HH-1234 2");
+		processor.execute("leave 1");
+		processor.execute("park KA-01-HH-1234 White 2");
+		assertEquals("Allocatedslotnumber:1onlevel1\nSorry,vehicleisalreadyparked.\nNotFound\n"
+				+ "Slotnumber1isfree\nAllocatedslotnumber:1",
+				outContent.toString().trim().replace(" ", "").replace(System.lineSeparator(), "\n"));
+	}
 }
@@ -0,0 +1,267 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.dao.ParkingLevelDataManager;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.ColorDictionary;
+import io.gojek.parkinglot.model.strategy.BitmapNearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.NearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.ParkingStrategy;
+
+/**
+ * Tests every level manager has to pass
+ * 
+ * @author vaibhav
+ *
+ */
+public abstract class AbstractParkingLevelManagerTest
+{
+	protected ParkingLevelDataManager<Car> levelManager;
+	
+	protected abstract ParkingLevelDataManager<Car> newLevelManager(int capacity, ParkingStrategy parkingStrategy,
+			ColorDictionary colorDictionary);
+	
+	protected ParkingLevelDataManager<Car> newLevelManager(int capacity, ParkingStrategy parkingStrategy)
+	{
+		return newLevelManager(capacity, parkingStrategy, new ColorDictionary());
+	}
+	
+	@Before
+	public void init()
+	{
+		levelManager = newLevelManager(6, new NearestFirstParkingStrategy());
+	}
+	
+	@After
+	public void cleanUp()
+	{
+		levelManager.doCleanUp();
+	}
+	
+	@Test
+	public void findSlotByRegistrationNo()
+	{
+		assertEquals(1, levelManager.parkCar(new Car("KA-01-HH-1234", "White")));
+		assertEquals(2, levelManager.parkCar(new Car("KA-01-HH-9999", "White")));
+		assertEquals(2, levelManager.getSlotNoFromRegistrationNo("KA-01-HH-9999"));
+		assertEquals(1, levelManager.getSlotNoFromRegistrationNo("ka-01-hh-1234"));
+		assertEquals(Constants.NOT_FOUND, levelManager.getSlotNoFromRegistrationNo("KA-01-HH-0000"));
+	}
+	
+	@Test
+	public void rejectDuplicateRegistrationNo()
+	{
+		assertEquals(1, levelManager.parkCar(new Car("KA-01-HH-1234", "White")));
+		assertEquals(Constants.VEHICLE_ALREADY_EXIST, levelManager.parkCar(new Car("ka-01-hh-1234", "Black")));
+		assertEquals(5, levelManager.getAvailableSlotsCount());
+	}
+	
+	@Test
+	public void leaveRemovesRegistrationNo()
+	{
+		assertEquals(1, levelManager.parkCar(new Car("KA-01-HH-1234", "White")));
+		assertTrue(levelManager.leaveCar(1));
+		assertFalse(levelManager.leaveCar(1));
+		assertEquals(Constants.NOT_FOUND, levelManager.getSlotNoFromRegistrationNo("KA-01-HH-1234"));
+		assertEquals(1, levelManager.parkCar(new Car("KA-01-HH-1234", "Black")));
+	}
+	
+	@Test
+	public void restoreAllLikeOneByOne()
+	{
+		ParkingLevelDataManager<Car> restored = newLevelManager(200, new BitmapNearestFirstParkingStrategy(200));
+		int[] slots = { 2, 63, 64, 65, 130, 200 };
+		List<Car> cars = new ArrayList<>();
+		for (int slot : slots)
+			cars.add(new Car("KA-01-HH-" + slot, slot % 2 == 0 ? "White" : "Black"));
+		restored.restoreAll(slots, cars);
+		ParkingLevelDataManager<Car> oneByOne = newLevelManager(200, new BitmapNearestFirstParkingStrategy(200));
+		for (int i = 0; i < slots.length; i++)
+			oneByOne.restoreCar(slots[i], new Car(cars.get(i).getRegistrationNo(), cars.get(i).getColor()));
+		assertEquals(oneByOne.getStatus(), restored.getStatus());
+		oneByOne.doCleanUp();
+		assertEquals(194, restored.getAvailableSlotsCount());
+		assertEquals(65, restored.getSlotNoFromRegistrationNo("ka-01-hh-65"));
+		assertEquals(Arrays.asList(2, 64, 130, 200), restored.getSlotNumbersFromColor("White"));
+		assertEquals(2, restored.getColorCount("Black"));
+		// the restored slots are not given out again
+		assertEquals(1, restored.parkCar(new Car("KA-02-HH-1", "White")));
+		assertEquals(3, restored.parkCar(new Car("KA-02-HH-3", "White")));
+		for (int slot = 4; slot <= 62; slot++)
+			restored.parkCar(new Car("KA-02-HH-" + slot, "White"));
+		assertEquals(66, restored.parkCar(new Car("KA-02-HH-66", "White")));
+		restored.doCleanUp();
+	}
+	
+	@Test
+	public void parkAndLeaveAll()
+	{
+		assertEquals(1, levelManager.parkCar(new Car("KA-01-HH-9999", "White")));
+		int[] slots = levelManager.parkAll(Arrays.asList(new Car("KA-01-HH-1234", "White"),
+				new Car("ka-01-hh-9999", "Black"), new Car("KA-01-HH-1234", "Red"), new Car("KA-01-BB-0001", "Red"),
+				new Car("KA-01-HH-7777", "Red"), new Car("KA-01-HH-2701", "Blue"), new Car("KA-01-HH-3141", "Black"),
+				new Car("KA-01-P-333", "White")));
+		assertArrayEquals(new int[] { 2, Constants.VEHICLE_ALREADY_EXIST, Constants.VEHICLE_ALREADY_EXIST, 3, 4, 5,
+				6, Constants.NOT_AVAILABLE }, slots);
+		assertEquals(0, levelManager.getAvailableSlotsCount());
+		assertEquals(Arrays.asList(3, 4), levelManager.getSlotNumbersFromColor("red"));
+		boolean[] left = levelManager.leaveAll(new int[] { 4, 4, 7, 0, 2 });
+		assertTrue(Arrays.equals(new boolean[] { true, false, false, false, true }, left));
+		assertEquals(2, levelManager.getAvailableSlotsCount());
+		assertArrayEquals(new int[] { 2, 4 }, levelManager.parkAll(
+				Arrays.asList(new Car("KA-01-HH-1234", "White"), new Car("KA-01-HH-7777", "Red"))));
+	}
+	
+	@Test
+	public void findByColorInSlotOrder()
+	{
+		levelManager.parkCar(new Car("KA-01-HH-1234", "White"));
+		levelManager.parkCar(new Car("KA-01-HH-9999", "Black"));
+		levelManager.parkCar(new Car("KA-01-BB-0001", "white"));
+		levelManager.parkCar(new Car("KA-01-HH-7777", "Red"));
+		levelManager.leaveCar(1);
+		levelManager.parkCar(new Car("KA-01-P-333", "WHITE"));
+		assertEquals(Arrays.asList(1, 3), levelManager.getSlotNumbersFromColor("White"));
+		assertEquals(Arrays.asList("KA-01-P-333", "KA-01-BB-0001"), levelManager.getRegNumberForColor("white"));
+		assertTrue(levelManager.getSlotNumbersFromColor("Blue").isEmpty());
+		assertTrue(levelManager.getRegNumberForColor("Blue").isEmpty());
+	}
+	
+	@Test
+	public void visitOnePageAtATime()
+	{
+		levelManager.parkAll(Arrays.asList(new Car("KA-01-HH-1234", "White"), new Car("KA-01-HH-9999", "Black"),
+				new Car("KA-01-BB-0001", "Red"), new Car("KA-01-HH-7777", "Red")));
+		levelManager.leaveCar(2);
+		List<Integer> slots = new ArrayList<>();
+		assertEquals(3, levelManager.forEachCar(1, 1, (vehicle, slot) -> slots.add(slot)));
+		assertEquals(Constants.NOT_FOUND, levelManager.forEachCar(3, 2, (vehicle, slot) -> slots.add(slot)));
+		assertEquals(Constants.NOT_FOUND, levelManager.forEachCar(5, 10, (vehicle, slot) -> slots.add(slot)));
+		assertEquals(Arrays.asList(1, 3, 4), slots);
+		List<String> registrationNos = new ArrayList<>();
+		levelManager.forEachCar((vehicle, slot) -> registrationNos.add(vehicle.getRegistrationNo()));
+		assertEquals(Arrays.asList("KA-01-HH-1234", "KA-01-BB-0001", "KA-01-HH-7777"), registrationNos);
+	}
+	
+	@Test
+	public void concurrentParkAndLeave() throws Exception
+	{
+		int capacity = 1000;
+		int threads = 8;
+		levelManager.doCleanUp();
+		levelManager = newLevelManager(capacity, new BitmapNearestFirstParkingStrategy(capacity));
+		Set<Integer> held = ConcurrentHashMap.newKeySet();
+		AtomicInteger doubleAllocations = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++)
+		{
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				start.await();
+				Deque<Integer> mine = new ArrayDeque<>();
+				for (int i = 0; i < 20000; i++)
+				{
+					if (mine.size() < 200 && i % 3 != 2)
+					{
+						int slot = levelManager.parkCar(new Car("KA-" + thread + "-" + i, "White"));
+						if (slot > 0)
+						{
+							if (!held.add(slot))
+								doubleAllocations.incrementAndGet();
+							mine.push(slot);
+						}
+					}
+					else if (!mine.isEmpty())
+					{
+						int slot = mine.pop();
+						held.remove(slot);
+						assertTrue(levelManager.leaveCar(slot));
+					}
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures)
+			future.get(60, TimeUnit.SECONDS);
+		executor.shutdown();
+		assertEquals(0, doubleAllocations.get());
+		assertEquals(capacity - held.size(), levelManager.getAvailableSlotsCount());
+		assertEquals(held.size(), levelManager.getStatus().size());
+		assertEquals(held.size(), levelManager.getSlotNumbersFromColor("White").size());
+	}
+	
+	@Test
+	public void colorCounts()
+	{
+		levelManager.parkCar(new Car("KA-01-HH-1234", "Teal"));
+		levelManager.parkCar(new Car("KA-01-HH-9999", "TEAL"));
+		levelManager.parkCar(new Car("KA-01-BB-0001", "Black"));
+		levelManager.parkCar(new Car("KA-01-HH-9999", "Black"));
+		assertEquals(2, levelManager.getColorCount("teal"));
+		assertEquals(1, levelManager.getColorCount("Black"));
+		assertEquals(0, levelManager.getColorCount("Red"));
+		assertTrue(levelManager.leaveCar(3));
+		assertEquals(0, levelManager.getColorCount("Black"));
+		assertEquals(Collections.singletonMap("Teal", 2), levelManager.getColorCounts());
+	}
+	
+	@Test
+	public void keepColorsOfFullDictionary()
+	{
+		ColorDictionary colorDictionary = new ColorDictionary();
+		for (int i = 1; i < ColorDictionary.MAX_CODE; i++)
+			colorDictionary.encode("Color" + i);
+		colorDictionary.encode("White");
+		levelManager.doCleanUp();
+		levelManager = newLevelManager(6, new NearestFirstParkingStrategy(), colorDictionary);
+		levelManager.parkCar(new Car("KA-01-HH-1234", "Teal"));
+		levelManager.parkCar(new Car("KA-01-HH-9999", "WHITE"));
+		levelManager.parkCar(new Car("KA-01-BB-0001", "TEAL"));
+		levelManager.parkCar(new Car("KA-01-HH-7777", "White"));
+		assertEquals(ColorDictionary.RAW, colorDictionary.encode("Teal"));
+		assertEquals(Arrays.asList("1\t\tKA-01-HH-1234\t\tTeal", "2\t\tKA-01-HH-9999\t\tWHITE",
+				"3\t\tKA-01-BB-0001\t\tTEAL", "4\t\tKA-01-HH-7777\t\tWhite"), levelManager.getStatus());
+		assertEquals(Arrays.asList(1, 3), levelManager.getSlotNumbersFromColor("teal"));
+		assertEquals(Arrays.asList("KA-01-HH-9999", "KA-01-HH-7777"), levelManager.getRegNumberForColor("white"));
+		assertEquals(2, levelManager.getColorCount("teal"));
+		assertTrue(levelManager.leaveCar(1));
+		assertTrue(levelManager.leaveCar(2));
+		assertEquals(Arrays.asList(3), levelManager.getSlotNumbersFromColor("Teal"));
+		Map<String, Integer> colorCounts = new HashMap<>();
+		colorCounts.put("Teal", 1);
+		colorCounts.put("White", 1);
+		assertEquals(colorCounts, levelManager.getColorCounts());
+	}
+}
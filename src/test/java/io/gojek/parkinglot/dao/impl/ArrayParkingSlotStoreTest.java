@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.dao.ParkingSlotStore;
+import io.gojek.parkinglot.model.Car;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class ArrayParkingSlotStoreTest
+{
+	@Test
+	public void putAndRemove()
+	{
+		ParkingSlotStore<Car> store = new ArrayParkingSlotStore<>(10);
+		Car car = new Car("KA-01-HH-1234", "White");
+		store.put(10, car);
+		assertTrue(store.isOccupied(10));
+		assertEquals(car, store.get(10));
+		assertEquals(car, store.remove(10));
+		assertFalse(store.isOccupied(10));
+		assertNull(store.remove(10));
+	}
+	
+	@Test
+	public void nextOccupiedAcrossWords()
+	{
+		ParkingSlotStore<Car> store = new ArrayParkingSlotStore<>(200);
+		store.put(63, new Car("A", "White"));
+		store.put(64, new Car("B", "White"));
+		store.put(200, new Car("C", "White"));
+		assertEquals(63, store.nextOccupied(1));
+		assertEquals(64, store.nextOccupied(64));
+		assertEquals(200, store.nextOccupied(65));
+		assertEquals(Constants.NOT_FOUND, store.nextOccupied(201));
+		store.remove(200);
+		assertEquals(Constants.NOT_FOUND, store.nextOccupied(65));
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rejectSlotOutOfRange()
+	{
+		new ArrayParkingSlotStore<Car>(5).put(6, new Car("A", "White"));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectNegativeCapacity()
+	{
+		new ArrayParkingSlotStore<Car>(-5);
+	}
+}
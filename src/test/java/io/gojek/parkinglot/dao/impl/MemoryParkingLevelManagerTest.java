@@ -0,0 +1,42 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import io.gojek.parkinglot.dao.ParkingLevelDataManager;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.ColorDictionary;
+import io.gojek.parkinglot.model.strategy.NearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.ParkingStrategy;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class MemoryParkingLevelManagerTest extends AbstractParkingLevelManagerTest
+{
+	@Override
+	protected ParkingLevelDataManager<Car> newLevelManager(int capacity, ParkingStrategy parkingStrategy,
+			ColorDictionary colorDictionary)
+	{
+		return new MemoryParkingLevelManager<>(1, capacity, parkingStrategy, colorDictionary);
+	}
+	
+	@Test
+	public void statusWithMapSlotStore()
+	{
+		levelManager.doCleanUp();
+		levelManager = new MemoryParkingLevelManager<>(1, 6, new NearestFirstParkingStrategy(),
+				new MapParkingSlotStore<Car>(6));
+		levelManager.parkCar(new Car("KA-01-HH-1234", "White"));
+		levelManager.parkCar(new Car("KA-01-HH-9999", "Black"));
+		levelManager.leaveCar(1);
+		assertEquals(Arrays.asList("2\t\tKA-01-HH-9999\t\tBlack"), levelManager.getStatus());
+	}
+}
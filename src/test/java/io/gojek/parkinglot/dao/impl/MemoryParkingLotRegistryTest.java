@@ -0,0 +1,113 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.gojek.parkinglot.dao.ParkingLotRegistry;
+import io.gojek.parkinglot.exception.ErrorCode;
+import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.Vehicle;
+import io.gojek.parkinglot.service.ParkingService;
+import io.gojek.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class MemoryParkingLotRegistryTest
+{
+	private PrintStream out;
+	
+	@Before
+	public void init()
+	{
+		out = System.out;
+		System.setOut(new PrintStream(new ByteArrayOutputStream()));
+	}
+	
+	@After
+	public void cleanUp()
+	{
+		System.setOut(out);
+	}
+	
+	@Test
+	public void lotsAreIndependent() throws Exception
+	{
+		ParkingLotRegistry<Vehicle> registry = new MemoryParkingLotRegistry<>();
+		ParkingService lotA = new ParkingServiceImpl(registry, "A");
+		ParkingService lotB = new ParkingServiceImpl(registry, "B");
+		lotA.createParkingLot(1, 2);
+		lotB.createParkingLot(1, 5);
+		lotA.park(1, new Car("KA-01-HH-1234", "White"));
+		lotB.park(1, new Car("KA-01-HH-1234", "White"));
+		lotB.park(1, new Car("KA-01-HH-9999", "White"));
+		assertEquals(Optional.of(1), lotA.getAvailableSlotsCount(1));
+		assertEquals(Optional.of(3), lotB.getAvailableSlotsCount(1));
+		assertEquals(2, registry.getLotIds().size());
+		
+		// a second service on the same id serves the same lot
+		assertEquals(Optional.of(1), new ParkingServiceImpl(registry, "A").getAvailableSlotsCount(1));
+		
+		lotA.doCleanup();
+		assertNull(registry.get("A"));
+		assertEquals(Optional.of(3), lotB.getAvailableSlotsCount(1));
+	}
+	
+	@Test
+	public void serviceFollowsRegistry() throws Exception
+	{
+		ParkingLotRegistry<Vehicle> registry = new MemoryParkingLotRegistry<>();
+		ParkingServiceImpl early = new ParkingServiceImpl(registry, "A");
+		ParkingServiceImpl owner = new ParkingServiceImpl(registry, "A");
+		owner.createParkingLot(1, 2);
+		
+		// created before the lot, the service still serves it
+		assertEquals(1, early.parkCar(1, new Car("KA-01-HH-1234", "White")));
+		assertEquals(Optional.of(1), owner.getAvailableSlotsCount(1));
+		
+		owner.doCleanup();
+		try
+		{
+			early.parkCar(1, new Car("KA-01-HH-9999", "White"));
+			throw new AssertionError("lot A was removed");
+		}
+		catch (ParkingException e)
+		{
+			assertEquals(ErrorCode.PARKING_NOT_EXIST_ERROR.getMessage(), e.getMessage());
+		}
+		
+		// the id can be used for a new lot by any of the services
+		early.createParkingLot(1, 3);
+		assertEquals(Optional.of(3), owner.getAvailableSlotsCount(1));
+	}
+	
+	@Test
+	public void rejectDuplicateLotId() throws Exception
+	{
+		ParkingLotRegistry<Vehicle> registry = new MemoryParkingLotRegistry<>();
+		new ParkingServiceImpl(registry, "A").createParkingLot(1, 2);
+		try
+		{
+			new ParkingServiceImpl(registry, "A").createParkingLot(1, 2);
+			throw new AssertionError("lot A is already registered");
+		}
+		catch (ParkingException e)
+		{
+			assertTrue(registry.getLotIds().contains("A"));
+		}
+	}
+}
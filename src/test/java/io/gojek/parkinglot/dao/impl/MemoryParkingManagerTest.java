@@ -0,0 +1,114 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.strategy.BitmapNearestFirstParkingStrategy;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class MemoryParkingManagerTest
+{
+	private MemoryParkingManager<Car>	parkingLot;
+	private ExecutorService				executor;
+	
+	@Before
+	public void init()
+	{
+		parkingLot = new MemoryParkingManager<>(Arrays.asList(1, 2), Arrays.asList(4, 4), Arrays.asList(
+				new BitmapNearestFirstParkingStrategy(4), new BitmapNearestFirstParkingStrategy(4)));
+		executor = Executors.newFixedThreadPool(2);
+	}
+	
+	@After
+	public void cleanUp()
+	{
+		executor.shutdownNow();
+		parkingLot.doCleanup();
+	}
+	
+	@Test
+	public void vehicleIsOnOneLevelOnly()
+	{
+		assertEquals(1, parkingLot.parkCar(1, new Car("KA-01-HH-1234", "White")));
+		assertEquals(Constants.VEHICLE_ALREADY_EXIST, parkingLot.parkCar(2, new Car("ka-01-hh-1234", "White")));
+		assertArrayEquals(new int[] { Constants.VEHICLE_ALREADY_EXIST, 1 }, parkingLot.parkAll(2,
+				Arrays.asList(new Car("KA-01-HH-1234", "White"), new Car("KA-01-HH-9999", "White"))));
+		assertTrue(parkingLot.leaveCar(1, 1));
+		assertEquals(2, parkingLot.parkCar(2, new Car("KA-01-HH-1234", "White")));
+		
+		// a restore moves the vehicle off the level it was on
+		assertTrue(parkingLot.restoreCar(1, 3, new Car("KA-01-HH-1234", "White")));
+		assertEquals(Constants.NOT_FOUND, parkingLot.getSlotNoFromRegistrationNo(2, "KA-01-HH-1234"));
+		assertEquals(Constants.VEHICLE_ALREADY_EXIST, parkingLot.parkCar(2, new Car("KA-01-HH-1234", "White")));
+		assertFalse(parkingLot.leaveCar(2, 2));
+	}
+	
+	@Test
+	public void registerOnlyRestoredVehicles()
+	{
+		// slot 3 of level 1 refuses every vehicle
+		MemoryParkingManager<Car> refusingLot = new MemoryParkingManager<>(Arrays.asList(1, 2),
+				Arrays.asList(4, 4),
+				Arrays.asList(new BitmapNearestFirstParkingStrategy(4), new BitmapNearestFirstParkingStrategy(4)),
+				(level, capacity, parkingStrategy, colorDictionary) -> new MemoryParkingLevelManager<>(level,
+						capacity, parkingStrategy, new ArrayParkingSlotStore<Car>(capacity)
+						{
+							@Override
+							public boolean claim(int slot, Car vehicle)
+							{
+								return (level != 1 || slot != 3) && super.claim(slot, vehicle);
+							}
+						}, colorDictionary));
+		assertFalse(refusingLot.restoreCar(1, 3, new Car("KA-01-HH-1234", "White")));
+		assertTrue(refusingLot.restoreCar(2, 4, new Car("KA-01-HH-1234", "White")));
+		assertEquals(4, refusingLot.getSlotNoFromRegistrationNo(2, "KA-01-HH-1234"));
+		
+		// the level leaves out the vehicle on slot 3, it can park elsewhere
+		refusingLot.restoreAll(1, new int[] { 1, 3 },
+				Arrays.asList(new Car("KA-01-HH-9999", "White"), new Car("KA-01-BB-0001", "Black")));
+		assertEquals(1, refusingLot.getSlotNoFromRegistrationNo(1, "KA-01-HH-9999"));
+		assertEquals(1, refusingLot.parkCar(2, new Car("KA-01-BB-0001", "Black")));
+		refusingLot.doCleanup();
+	}
+	
+	@Test
+	public void concurrentParksOnTwoLevels() throws Exception
+	{
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		for (int i = 0; i < 200; i++)
+		{
+			Car car = new Car("KA-01-HH-" + i, "White");
+			Future<Integer> level1 = executor.submit(() -> {
+				barrier.await();
+				return parkingLot.parkCar(1, car);
+			});
+			Future<Integer> level2 = executor.submit(() -> {
+				barrier.await();
+				return parkingLot.parkCar(2, car);
+			});
+			int parked = (level1.get() > 0 ? 1 : 0) + (level2.get() > 0 ? 1 : 0);
+			assertEquals(1, parked);
+			parkingLot.leaveCar(level1.get() > 0 ? 1 : 2, Math.max(level1.get(), level2.get()));
+		}
+	}
+}
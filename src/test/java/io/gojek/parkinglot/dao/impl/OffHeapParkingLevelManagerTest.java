@@ -0,0 +1,84 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.dao.ParkingLevelDataManager;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.ColorDictionary;
+import io.gojek.parkinglot.model.strategy.BitmapNearestFirstParkingStrategy;
+import io.gojek.parkinglot.model.strategy.ParkingStrategy;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class OffHeapParkingLevelManagerTest extends AbstractParkingLevelManagerTest
+{
+	@Override
+	protected ParkingLevelDataManager<Car> newLevelManager(int capacity, ParkingStrategy parkingStrategy,
+			ColorDictionary colorDictionary)
+	{
+		return new OffHeapParkingLevelManager<>(1, capacity, parkingStrategy, Car::new, colorDictionary);
+	}
+	
+	@Test
+	public void statusKeepsColorAsParked()
+	{
+		levelManager.parkCar(new Car("KA-01-HH-1234", "White"));
+		levelManager.parkCar(new Car("KA-01-HH-9999", "white"));
+		levelManager.restoreCar(4, new Car("KA-01-HH-1234", "Black"));
+		assertEquals(Arrays.asList("2\t\tKA-01-HH-9999\t\twhite", "4\t\tKA-01-HH-1234\t\tBlack"),
+				levelManager.getStatus());
+		assertEquals(1, levelManager.parkCar(new Car("KA-01-HH-7777", "Red")));
+	}
+	
+	@Test
+	public void findRegistrationNoAfterLeaves()
+	{
+		int capacity = 5000;
+		levelManager.doCleanUp();
+		levelManager = newLevelManager(capacity, new BitmapNearestFirstParkingStrategy(capacity));
+		for (int i = 1; i <= capacity; i++)
+			assertEquals(i, levelManager.parkCar(new Car("KA-" + i, "White")));
+		for (int i = 2; i <= capacity; i += 2)
+			levelManager.leaveCar(i);
+		for (int i = 1; i <= capacity; i++)
+			assertEquals(i % 2 == 1 ? i : Constants.NOT_FOUND, levelManager.getSlotNoFromRegistrationNo("ka-" + i));
+		assertEquals(2, levelManager.parkCar(new Car("KA-1-NEW", "Blue")));
+		assertEquals(Constants.VEHICLE_ALREADY_EXIST, levelManager.parkCar(new Car("KA-4999", "Blue")));
+	}
+	
+	@Test
+	public void pageThroughColorsAfterLeaves()
+	{
+		int capacity = 3000;
+		levelManager.doCleanUp();
+		levelManager = newLevelManager(capacity, new BitmapNearestFirstParkingStrategy(capacity));
+		for (int i = 1; i <= capacity; i++)
+			levelManager.parkCar(new Car("KA-" + i, i % 3 == 0 ? "Red" : "White"));
+		for (int i = 1; i <= capacity; i += 2)
+			levelManager.leaveCar(i);
+		List<Integer> red = new ArrayList<>();
+		for (int i = 6; i <= capacity; i += 6)
+			red.add(i);
+		assertEquals(red, levelManager.getSlotNumbersFromColor("red"));
+		assertEquals("KA-6", levelManager.getRegNumberForColor("Red").get(0));
+		List<Integer> slots = new ArrayList<>();
+		assertEquals(2402, levelManager.forEachCar(2, 1200, (car, slot) -> slots.add(slot)));
+		assertEquals(1200, slots.size());
+		assertEquals(2400, (int) slots.get(slots.size() - 1));
+		assertEquals(Constants.NOT_FOUND, levelManager.forEachCar(2402, capacity, (car, slot) -> slots.add(slot)));
+		assertEquals(capacity / 2, slots.size());
+		assertEquals(capacity / 2, levelManager.getStatus().size());
+	}
+}
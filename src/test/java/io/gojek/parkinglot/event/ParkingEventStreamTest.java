@@ -0,0 +1,118 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.event;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.gojek.parkinglot.dao.impl.MemoryParkingLevelManager;
+import io.gojek.parkinglot.event.ParkingEvent.Type;
+import io.gojek.parkinglot.event.ParkingEventStream.Subscription;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.strategy.BitmapNearestFirstParkingStrategy;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class ParkingEventStreamTest
+{
+	@Test
+	public void pollInBatchesAndSkipOverwritten()
+	{
+		ParkingEventStream stream = new ParkingEventStream(4);
+		Subscription subscription = stream.subscribe();
+		Car car = new Car("KA-01-HH-1234", "White");
+		for (int i = 1; i <= 3; i++)
+			stream.publish(Type.PARK, 1, i, car);
+		// the event keeps the color the vehicle had when it was published
+		car.setColor("Black");
+		List<ParkingEvent> batch = new ArrayList<>();
+		assertEquals(2, subscription.poll(batch, 2));
+		assertEquals(1, subscription.poll(batch, 2));
+		assertEquals(Arrays.asList(1, 2, 3), Arrays.asList(batch.get(0).getSlot(), batch.get(1).getSlot(),
+				batch.get(2).getSlot()));
+		assertEquals("White", batch.get(2).getColor());
+		assertEquals(0, subscription.poll(batch, 2));
+		// 6 more events in a ring of 4, the subscription is lapped
+		for (int i = 4; i <= 9; i++)
+			stream.publish(Type.LEAVE, 1, i, car);
+		batch.clear();
+		assertEquals(4, subscription.poll(batch, 10));
+		assertEquals(2, subscription.getMissed());
+		assertEquals(6, batch.get(0).getSlot());
+		assertEquals(Type.LEAVE, batch.get(3).getType());
+		assertEquals(8, batch.get(3).getSequence());
+	}
+	
+	@Test
+	public void followLevelFromListener() throws Exception
+	{
+		int capacity = 100;
+		MemoryParkingLevelManager<Car> levelManager = new MemoryParkingLevelManager<>(2, capacity,
+				new BitmapNearestFirstParkingStrategy(capacity));
+		ParkingEventStream stream = new ParkingEventStream(1024);
+		levelManager.setEventStream(stream);
+		// the view of the listener: slot -> registration number
+		Map<Integer, String> view = new ConcurrentHashMap<>();
+		CountDownLatch done = new CountDownLatch(1);
+		try (Subscription subscription = stream.subscribe(events -> {
+			for (ParkingEvent event : events)
+			{
+				assertEquals(2, event.getLevel());
+				if (event.getType() == Type.PARK)
+					view.put(event.getSlot(), event.getRegistrationNo());
+				else
+					view.remove(event.getSlot());
+				if (event.getSequence() == 149)
+					done.countDown();
+			}
+		}, 16))
+		{
+			for (int i = 1; i <= 100; i++)
+				levelManager.parkCar(new Car("KA-" + i, "White"));
+			for (int i = 1; i <= 100; i += 2)
+				levelManager.leaveCar(i);
+			assertEquals(true, done.await(10, TimeUnit.SECONDS));
+		}
+		assertEquals(50, view.size());
+		assertEquals(levelManager.getStatus().size(), view.size());
+		assertEquals("KA-100", view.get(100));
+	}
+	
+	@Test
+	public void eventsOfASlotInOrder() throws Exception
+	{
+		MemoryParkingLevelManager<Car> levelManager = new MemoryParkingLevelManager<>(1, 1,
+				new BitmapNearestFirstParkingStrategy(1));
+		ParkingEventStream stream = new ParkingEventStream(1 << 16);
+		levelManager.setEventStream(stream);
+		Subscription subscription = stream.subscribe();
+		// parks and leaves race for the only slot
+		Thread parker = new Thread(() -> {
+			for (int i = 0; i < 20000; i++)
+				levelManager.parkCar(new Car("KA-" + i, "White"));
+		});
+		parker.start();
+		while (parker.isAlive())
+			levelManager.leaveCar(1);
+		parker.join();
+		levelManager.leaveCar(1);
+		List<ParkingEvent> events = new ArrayList<>();
+		subscription.poll(events, 1 << 16);
+		assertEquals(0, subscription.getMissed());
+		assertEquals(0, events.size() % 2);
+		for (int i = 0; i < events.size(); i++)
+			assertEquals(i % 2 == 0 ? Type.PARK : Type.LEAVE, events.get(i).getType());
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.processor.Command;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class MappedCommandReaderTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void sameLinesAsBufferedReader() throws Exception
+	{
+		String content = "create_parking_lot 6\r\n  park KA-01-HH-1234 White  \n\npark  KA-01-HH-9999 White\rleave 4\n"
+				+ "status\r\nslot_number_for_registration_number KA-01-HH-3141";
+		Path file = folder.newFile().toPath();
+		Files.write(file, content.getBytes(Charset.defaultCharset()));
+		// windows smaller than a line force lines across window ends
+		for (int windowSize : new int[] { 52, 64, 1024 })
+		{
+			BufferedReader expected = new BufferedReader(new StringReader(content));
+			Command command = new Command();
+			try (MappedCommandReader reader = new MappedCommandReader(file, windowSize))
+			{
+				String line;
+				while ((line = expected.readLine()) != null)
+				{
+					String[] tokens = line.trim().split(" ");
+					assertEquals(true, reader.next(command));
+					assertEquals(line.trim(), command.toString());
+					assertEquals(tokens.length - 1, command.getParameterCount());
+					for (int i = 1; i < tokens.length; i++)
+						assertEquals(tokens[i], command.getParameter(i - 1));
+				}
+				assertFalse(reader.next(command));
+				assertEquals(7, reader.getLineNo());
+			}
+		}
+	}
+	
+	@Test
+	public void tokenizeInPlace()
+	{
+		Command command = new Command().load("leave 42 -3");
+		assertEquals(Constants.LEAVE, command.getName());
+		assertEquals(42, command.getInt(0));
+		assertEquals(-3, command.getInt(1));
+		assertNull(new Command().load("leaves 4").getName());
+		assertEquals(Integer.MIN_VALUE, new Command().load("leave -2147483648").getInt(0));
+	}
+	
+	@Test(expected = NumberFormatException.class)
+	public void rejectIntOverflow()
+	{
+		new Command().load("leave 2147483648").getInt(0);
+	}
+}
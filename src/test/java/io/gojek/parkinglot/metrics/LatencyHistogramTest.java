@@ -0,0 +1,52 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class LatencyHistogramTest
+{
+	@Test
+	public void percentilesWithinBucketPrecision()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100000; value++)
+			histogram.record(value * 1000);
+		assertEquals(100000, histogram.getCount());
+		assertEquals(100000000, histogram.getMax());
+		assertEquals(50000500, histogram.getMean(), 1);
+		assertWithin(50000000, histogram.getValueAtPercentile(50));
+		assertWithin(99000000, histogram.getValueAtPercentile(99));
+		assertWithin(99900000, histogram.getValueAtPercentile(99.9));
+		assertEquals(100000000, histogram.getValueAtPercentile(100));
+	}
+	
+	@Test
+	public void smallValuesAreExact()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(3);
+		histogram.record(63);
+		assertEquals(0, histogram.getValueAtPercentile(10));
+		assertEquals(3, histogram.getValueAtPercentile(50));
+		assertEquals(63, histogram.getValueAtPercentile(100));
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getValueAtPercentile(99));
+	}
+	
+	private static void assertWithin(long expected, long actual)
+	{
+		assertTrue(actual + " not within 3.2% of " + expected,
+				actual >= expected && actual <= expected + expected * 32 / 1000);
+	}
+}
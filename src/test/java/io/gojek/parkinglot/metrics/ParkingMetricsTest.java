@@ -0,0 +1,59 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.gojek.parkinglot.metrics.ParkingMetrics.Operation;
+import io.gojek.parkinglot.metrics.ParkingMetrics.Outcome;
+import io.gojek.parkinglot.output.CapturingResultWriter;
+import io.gojek.parkinglot.output.ConsoleResultWriter;
+import io.gojek.parkinglot.processor.RequestProcessor;
+import io.gojek.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class ParkingMetricsTest
+{
+	@Test
+	public void countOperationsOfService() throws Exception
+	{
+		CapturingResultWriter capturingWriter = new CapturingResultWriter(new ConsoleResultWriter());
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		parkingService.setResultWriter(capturingWriter);
+		capturingWriter.capture();
+		RequestProcessor processor = new RequestProcessor();
+		processor.setService(parkingService);
+		for (String input : Arrays.asList("create_parking_lot 2,1", "park KA-01-HH-1234 White",
+				"park KA-01-HH-1234 White", "park KA-01-HH-9999 Black", "park KA-01-BB-0001 Red",
+				"park KA-01-HH-7777 Red", "leave 2", "leave 2", "status", "slot_numbers_for_cars_with_colour White 2"))
+			processor.execute(input);
+		ParkingMetrics metrics = parkingService.getMetrics();
+		assertEquals(5, metrics.getLatency(Operation.PARK).getCount());
+		assertEquals(1, metrics.getCount(Outcome.ALREADY_PARKED));
+		assertEquals(1, metrics.getCount(Outcome.LOT_FULL));
+		assertEquals(1, metrics.getCount(Outcome.SLOT_EMPTY));
+		assertEquals(2, (long) metrics.getCounts().get("leave"));
+		assertEquals(1, (long) metrics.getCounts().get("slot_numbers_for_cars_with_colour"));
+		assertEquals(Integer.valueOf(1), metrics.getOccupancy().get(1));
+		assertEquals(Integer.valueOf(1), metrics.getOccupancy().get(2));
+		
+		capturingWriter.release();
+		capturingWriter.capture();
+		processor.execute("stats");
+		List<String> output = Arrays.asList(capturingWriter.release().split(System.lineSeparator()));
+		assertTrue(output.get(1).startsWith("park\t5\t"));
+		assertTrue(output.contains("lot_full: 1, already_parked: 1, slot_empty: 1, read_retries: 0"));
+		assertTrue(output.get(output.size() - 2).startsWith("1\t2\t1\t"));
+		assertTrue(output.get(output.size() - 1).startsWith("2\t1\t1\t"));
+	}
+}
@@ -0,0 +1,58 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import io.gojek.parkinglot.constants.Constants;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class ColorDictionaryTest
+{
+	@Test
+	public void matchColorsIgnoringCase()
+	{
+		ColorDictionary dictionary = new ColorDictionary();
+		int white = dictionary.encode("White");
+		int lowerWhite = dictionary.encode("white");
+		int black = dictionary.encode("Black");
+		assertEquals(white, dictionary.encode("White"));
+		assertNotEquals(white, lowerWhite);
+		assertEquals("white", dictionary.decode(lowerWhite));
+		assertEquals(white, dictionary.getKeyCode(lowerWhite));
+		assertEquals(dictionary.getKeyCode(white), dictionary.find("WHITE"));
+		assertEquals(black, dictionary.find("black"));
+		assertEquals(Constants.NOT_FOUND, dictionary.find("Blue"));
+		assertEquals(0, dictionary.getKeyCode(0));
+	}
+	
+	@Test
+	public void growPastInitialSize()
+	{
+		ColorDictionary dictionary = new ColorDictionary();
+		for (int i = 1; i <= 1000; i++)
+			assertEquals(i, dictionary.encode("Color" + i));
+		assertEquals(500, dictionary.find("COLOR500"));
+		assertEquals("Color1000", dictionary.decode(1000));
+	}
+	
+	@Test
+	public void newColorsAreRawWhenFull()
+	{
+		ColorDictionary dictionary = new ColorDictionary();
+		for (int i = 1; i <= ColorDictionary.MAX_CODE; i++)
+			dictionary.encode("Color" + i);
+		assertEquals(ColorDictionary.RAW, dictionary.encode("White"));
+		assertEquals(Constants.NOT_FOUND, dictionary.find("White"));
+		assertEquals(Constants.NOT_FOUND, dictionary.getKeyCode(ColorDictionary.RAW, "White"));
+		assertEquals(1, dictionary.getKeyCode(ColorDictionary.RAW, "COLOR1"));
+		assertEquals(ColorDictionary.MAX_CODE, dictionary.encode("Color" + ColorDictionary.MAX_CODE));
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.model.strategy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.gojek.parkinglot.constants.Constants;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class BitmapNearestFirstParkingStrategyTest
+{
+	@Test
+	public void sameSlotsAsNearestFirst()
+	{
+		int capacity = 5000;
+		ParkingStrategy expected = new NearestFirstParkingStrategy();
+		ParkingStrategy actual = new BitmapNearestFirstParkingStrategy(capacity);
+		for (int i = 1; i <= capacity; i++)
+		{
+			expected.add(i);
+			actual.add(i);
+		}
+		List<Integer> parked = new ArrayList<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++)
+		{
+			if (parked.size() < capacity && (parked.isEmpty() || random.nextInt(3) > 0))
+			{
+				int slot = expected.getSlot();
+				assertEquals(slot, actual.getSlot());
+				expected.removeSlot(slot);
+				actual.removeSlot(slot);
+				parked.add(slot);
+			}
+			else
+			{
+				int slot = parked.remove(random.nextInt(parked.size()));
+				expected.add(slot);
+				actual.add(slot);
+			}
+		}
+	}
+	
+	@Test
+	public void claimLowestFreeSlot()
+	{
+		ParkingStrategy strategy = new BitmapNearestFirstParkingStrategy(100000);
+		strategy.add(100000);
+		strategy.add(70000);
+		assertEquals(70000, strategy.claimSlot());
+		assertEquals(100000, strategy.getSlot());
+		assertEquals(100000, strategy.claimSlot());
+		assertEquals(Constants.NOT_AVAILABLE, strategy.claimSlot());
+	}
+	
+	@Test
+	public void removeSlotsOfWholeWords()
+	{
+		ParkingStrategy strategy = new BitmapNearestFirstParkingStrategy(300);
+		for (int slot = 1; slot <= 300; slot++)
+			strategy.add(slot);
+		BitSet taken = new BitSet();
+		taken.set(1, 129);
+		taken.set(130);
+		strategy.removeSlots(taken);
+		assertEquals(129, strategy.claimSlot());
+		assertEquals(131, strategy.claimSlot());
+	}
+	
+	@Test
+	public void claimSlotsInOrder()
+	{
+		ParkingStrategy strategy = new BitmapNearestFirstParkingStrategy(300);
+		ParkingStrategy expected = new NearestFirstParkingStrategy();
+		for (int slot = 1; slot <= 300; slot += 1 + slot % 3)
+		{
+			strategy.add(slot);
+			expected.add(slot);
+		}
+		int[] slots = new int[150];
+		int[] expectedSlots = new int[150];
+		// batches crossing word ends
+		for (int count : new int[] { 5, 70, 1, 150 })
+		{
+			int claimed = strategy.claimSlots(slots, count);
+			assertEquals(expected.claimSlots(expectedSlots, count), claimed);
+			assertArrayEquals(Arrays.copyOf(expectedSlots, claimed), Arrays.copyOf(slots, claimed));
+		}
+		assertEquals(Constants.NOT_AVAILABLE, strategy.claimSlot());
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rejectSlotBeyondCapacity()
+	{
+		new BitmapNearestFirstParkingStrategy(10).add(11);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectNegativeCapacity()
+	{
+		new BitmapNearestFirstParkingStrategy(-5);
+	}
+	
+	@Test(expected = NoSuchElementException.class)
+	public void noFreeSlot()
+	{
+		ParkingStrategy strategy = new BitmapNearestFirstParkingStrategy(10);
+		strategy.add(1);
+		strategy.removeSlot(1);
+		strategy.getSlot();
+	}
+}
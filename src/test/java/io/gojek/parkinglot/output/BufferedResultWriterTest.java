@@ -0,0 +1,39 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.output;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class BufferedResultWriterTest
+{
+	@Test
+	public void writesInBatches()
+	{
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		PrintStream console = new PrintStream(expected);
+		ResultWriter resultWriter = new BufferedResultWriter(new PrintStream(actual), 32);
+		
+		resultWriter.write("Created parking lot with 6 slots");
+		console.println("Created parking lot with 6 slots");
+		assertEquals(expected.toString(), actual.toString());
+		
+		// below the batch size, stays buffered until flushed
+		resultWriter.write("1\t\tKA-01-HH-1234\t\tWhite");
+		console.println("1\t\tKA-01-HH-1234\t\tWhite");
+		assertEquals(("Created parking lot with 6 slots" + System.lineSeparator()).length(), actual.size());
+		
+		resultWriter.flush();
+		assertEquals(expected.toString(), actual.toString());
+	}
+}
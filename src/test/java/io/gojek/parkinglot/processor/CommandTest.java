@@ -0,0 +1,93 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.gojek.parkinglot.constants.Opcode;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class CommandTest
+{
+	@Test
+	public void parksWithAndWithoutLevel()
+	{
+		Command command = new Command().load("  park KA-01-HH-1234 White \r");
+		assertTrue(command.isValid());
+		assertEquals(Opcode.PARK, command.getOpcode());
+		assertFalse(command.hasLevel());
+		assertEquals("KA-01-HH-1234", command.getParameter(0));
+		assertEquals("White", command.getParameter(1));
+		assertEquals("park KA-01-HH-1234 White", command.toString());
+		
+		command.load("park KA-01-HH-1234 White 2");
+		assertTrue(command.isValid());
+		assertTrue(command.hasLevel());
+		assertEquals(2, command.getLevel());
+	}
+	
+	@Test
+	public void rejectEmptyTokens()
+	{
+		// not a park with "KA-01" as colour and "White" as level
+		Command command = new Command().load("park  KA-01 White");
+		assertFalse(command.isValid());
+		assertFalse(command.copy().isValid());
+		assertFalse(command.load("leave  4").isValid());
+		assertFalse(command.load("leave 4  2").isValid());
+		// spaces around the line are trimmed
+		assertTrue(command.load(" leave 4  ").isValid());
+	}
+	
+	@Test
+	public void rejectWrongParameterCount()
+	{
+		Command command = new Command();
+		assertFalse(command.load("park KA-01-HH-1234").isValid());
+		assertFalse(command.load("create_parking_lot 6 2").isValid());
+		assertFalse(command.load("unknown 6").isValid());
+		assertFalse(command.load("").isValid());
+	}
+	
+	@Test
+	public void optionsAreNotParameters()
+	{
+		Command command = new Command().load("status limit=5 2 from=3");
+		assertTrue(command.isValid());
+		assertEquals(1, command.getParameterCount());
+		assertEquals(2, command.getLevel());
+		assertEquals(3, command.getOptionInt("from"));
+		assertEquals(5, command.getOptionInt("limit"));
+		
+		command.load("status");
+		assertTrue(command.isValid());
+		assertFalse(command.hasOption("from"));
+	}
+	
+	@Test
+	public void parseIntLikeInteger()
+	{
+		Command command = new Command().load("leave -2147483648");
+		assertEquals(Integer.MIN_VALUE, command.getInt(0));
+		for (String value : new String[] { "2147483648", "+", "1a", "--1" })
+		{
+			try
+			{
+				command.load("leave " + value).getInt(0);
+				throw new AssertionError(value);
+			}
+			catch (NumberFormatException e)
+			{
+				// expected
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.processor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.gojek.parkinglot.input.MappedCommandReader;
+import io.gojek.parkinglot.output.BufferedResultWriter;
+import io.gojek.parkinglot.output.CapturingResultWriter;
+import io.gojek.parkinglot.output.ResultWriter;
+import io.gojek.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class ParallelCommandReplayerTest
+{
+	private static final String[] COLORS = { "White", "Black", "Red" };
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void sameOutputAsSequentialReplay() throws Exception
+	{
+		Random random = new Random(7);
+		StringBuilder content = new StringBuilder("park KA-01-HH-0 White\ncreate_parking_lot 20,20,20,20,20\n");
+		for (int i = 1; i <= 5000; i++)
+		{
+			int level = 1 + random.nextInt(5);
+			switch (random.nextInt(8))
+			{
+				case 0:
+				case 1:
+				case 2:
+					content.append("park KA-01-HH-" + random.nextInt(200) + " " + COLORS[random.nextInt(3)] + " "
+							+ level);
+					break;
+				case 3:
+					content.append("park KA-01-HH-" + random.nextInt(200) + " Black");
+					break;
+				case 4:
+					content.append("leave " + (1 + random.nextInt(20)) + " " + level);
+					break;
+				case 5:
+					content.append("status " + level);
+					break;
+				case 6:
+					content.append("slot_numbers_for_cars_with_color " + COLORS[random.nextInt(3)] + " " + level);
+					break;
+				default:
+					content.append(random.nextBoolean() ? "leave x " + level : "bogus");
+					break;
+			}
+			content.append('\n');
+		}
+		Path file = folder.newFile().toPath();
+		Files.write(file, content.toString().getBytes(Charset.defaultCharset()));
+		assertEquals(replaySequential(file), replayParallel(file));
+	}
+	
+	private String replaySequential(Path file) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ResultWriter resultWriter = new BufferedResultWriter(new PrintStream(out));
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		parkingService.setResultWriter(resultWriter);
+		AbstractProcessor processor = new RequestProcessor();
+		processor.setService(parkingService);
+		Command command = new Command();
+		try (MappedCommandReader commandReader = new MappedCommandReader(file))
+		{
+			while (commandReader.next(command))
+			{
+				if (processor.validate(command))
+				{
+					try
+					{
+						processor.execute(command);
+					}
+					catch (Exception e)
+					{
+						resultWriter.write(e.getMessage());
+					}
+				}
+				else
+					resultWriter.write("Incorrect Command Found at line: " + commandReader.getLineNo() + " ,Input: "
+							+ command);
+			}
+		}
+		resultWriter.flush();
+		return out.toString();
+	}
+	
+	private String replayParallel(Path file) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ResultWriter resultWriter = new BufferedResultWriter(new PrintStream(out));
+		CapturingResultWriter capturingWriter = new CapturingResultWriter(resultWriter);
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		parkingService.setResultWriter(capturingWriter);
+		AbstractProcessor processor = new RequestProcessor();
+		processor.setService(parkingService);
+		try (MappedCommandReader commandReader = new MappedCommandReader(file))
+		{
+			new ParallelCommandReplayer(processor, capturingWriter, resultWriter, 4).replay(commandReader);
+		}
+		resultWriter.flush();
+		return out.toString();
+	}
+}
@@ -0,0 +1,231 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.output.CapturingResultWriter;
+import io.gojek.parkinglot.output.ConsoleResultWriter;
+import io.gojek.parkinglot.processor.AbstractProcessor;
+import io.gojek.parkinglot.processor.Command;
+import io.gojek.parkinglot.processor.RequestProcessor;
+import io.gojek.parkinglot.service.AbstractService;
+import io.gojek.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class ParkingServerTest
+{
+	private ParkingServer			server;
+	private Thread					serverThread;
+	// status waits for it when set
+	private volatile CountDownLatch	statusGate;
+	
+	@Before
+	public void init() throws Exception
+	{
+		CapturingResultWriter capturingWriter = new CapturingResultWriter(new ConsoleResultWriter());
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		parkingService.setResultWriter(capturingWriter);
+		AbstractProcessor processor = new GatedProcessor();
+		processor.setService(parkingService);
+		server = new ParkingServer(processor, capturingWriter,
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		serverThread = new Thread(server);
+		serverThread.start();
+	}
+	
+	@After
+	public void cleanUp() throws Exception
+	{
+		server.close();
+		serverThread.join(5000);
+	}
+	
+	@Test
+	public void pipelinedCommands() throws Exception
+	{
+		try (Socket socket = connect())
+		{
+			BufferedReader reader = reader(socket);
+			// all commands in one write, the responses come back in order
+			send(socket, "create_parking_lot 2\npark KA-01-HH-1234 White\npark KA-01-HH-9999 Black\r\n"
+					+ "park KA-01-BB-0001 Red\nbogus\nstatus\nleave x\nexit\n");
+			assertEquals("Created parking lot with 2 slots", readResponse(reader).get(0));
+			assertEquals("Allocated slot number: 1", readResponse(reader).get(0));
+			assertEquals("Allocated slot number: 2", readResponse(reader).get(0));
+			assertEquals("Sorry, parking lot is full", readResponse(reader).get(0));
+			assertEquals("Incorrect Command Found ,Input: bogus", readResponse(reader).get(0));
+			List<String> status = readResponse(reader);
+			assertEquals(3, status.size());
+			assertEquals("2\t\tKA-01-HH-9999\t\tBlack", status.get(2));
+			assertEquals("slot_number value is incorrect", readResponse(reader).get(0));
+			// exit closes the connection
+			assertEquals(null, reader.readLine());
+		}
+	}
+	
+	@Test
+	public void concurrentConnections() throws Exception
+	{
+		try (Socket socket = connect())
+		{
+			send(socket, "create_parking_lot 50,50,50,50\n");
+			assertEquals("Created parking lot with 4 levels and 200 slots", readResponse(reader(socket)).get(0));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Integer>> parked = new ArrayList<>();
+		for (int gate = 1; gate <= 4; gate++)
+		{
+			int level = gate;
+			parked.add(executor.submit(() -> {
+				int count = 0;
+				try (Socket socket = connect())
+				{
+					BufferedReader reader = reader(socket);
+					// one byte at a time to split commands across reads
+					for (byte b : commands(level).getBytes(Charset.defaultCharset()))
+						socket.getOutputStream().write(b);
+					for (int i = 0; i < 60; i++)
+					{
+						if (readResponse(reader).get(0).startsWith("Allocated slot number"))
+							count++;
+					}
+				}
+				return count;
+			}));
+		}
+		for (Future<Integer> count : parked)
+			assertEquals(50, count.get().intValue());
+		executor.shutdown();
+	}
+	
+	@Test
+	public void lastLineWithoutSeparator() throws Exception
+	{
+		try (Socket socket = connect())
+		{
+			BufferedReader reader = reader(socket);
+			send(socket, "create_parking_lot 2\npark KA-01-HH-1234 White");
+			// the end of the input does not drop the last line nor the responses
+			socket.shutdownOutput();
+			assertEquals("Created parking lot with 2 slots", readResponse(reader).get(0));
+			assertEquals("Allocated slot number: 1", readResponse(reader).get(0));
+			assertEquals(null, reader.readLine());
+		}
+	}
+	
+	@Test
+	public void slowCommandHoldsUpItsConnectionOnly() throws Exception
+	{
+		statusGate = new CountDownLatch(1);
+		try (Socket slow = connect(); Socket fast = connect())
+		{
+			BufferedReader slowReader = reader(slow);
+			BufferedReader fastReader = reader(fast);
+			send(slow, "create_parking_lot 2\n");
+			assertEquals("Created parking lot with 2 slots", readResponse(slowReader).get(0));
+			send(slow, "status\npark KA-01-HH-1234 White\n");
+			// served while status of the other connection is still running
+			send(fast, "park KA-01-HH-9999 White\n");
+			assertEquals("Allocated slot number: 1", readResponse(fastReader).get(0));
+			assertEquals(1, statusGate.getCount());
+			statusGate.countDown();
+			assertEquals("Slot No.\tRegistration No.\tColor", readResponse(slowReader).get(0));
+			assertEquals("Allocated slot number: 2", readResponse(slowReader).get(0));
+		}
+	}
+	
+	private String commands(int level)
+	{
+		StringBuilder commands = new StringBuilder();
+		for (int i = 0; i < 60; i++)
+			commands.append("park KA-0" + level + "-HH-" + i + " White " + level + "\n");
+		return commands.toString();
+	}
+	
+	private Socket connect() throws Exception
+	{
+		return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+	}
+	
+	private BufferedReader reader(Socket socket) throws Exception
+	{
+		return new BufferedReader(new InputStreamReader(socket.getInputStream(), Charset.defaultCharset()));
+	}
+	
+	private void send(Socket socket, String commands) throws Exception
+	{
+		OutputStream out = socket.getOutputStream();
+		out.write(commands.getBytes(Charset.defaultCharset()));
+		out.flush();
+	}
+	
+	/**
+	 * @return lines of the next response, which ends with an empty line
+	 */
+	private List<String> readResponse(BufferedReader reader) throws Exception
+	{
+		List<String> lines = new ArrayList<>();
+		String line;
+		while ((line = reader.readLine()) != null && !line.isEmpty())
+			lines.add(line);
+		return lines;
+	}
+	
+	private class GatedProcessor implements AbstractProcessor
+	{
+		private final AbstractProcessor processor = new RequestProcessor();
+		
+		@Override
+		public void setService(AbstractService service)
+		{
+			processor.setService(service);
+		}
+		
+		@Override
+		public void execute(String action) throws ParkingException
+		{
+			execute(new Command().load(action));
+		}
+		
+		@Override
+		public void execute(Command command) throws ParkingException
+		{
+			CountDownLatch gate = statusGate;
+			try
+			{
+				if (gate != null && "status".equals(command.getName()) && !gate.await(5, TimeUnit.SECONDS))
+					throw new AssertionError("status was not let through");
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			processor.execute(command);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.exception.ErrorCode;
+import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.ParkingTicket;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class AsyncParkingServiceImplTest
+{
+	private ExecutorService			executor;
+	private AsyncParkingServiceImpl	asyncService;
+	
+	@Before
+	public void init()
+	{
+		executor = Executors.newFixedThreadPool(4);
+		asyncService = new AsyncParkingServiceImpl(new ParkingServiceImpl(), executor);
+	}
+	
+	@After
+	public void cleanUp()
+	{
+		executor.shutdown();
+	}
+	
+	@Test
+	public void parkWithoutLot() throws Exception
+	{
+		try
+		{
+			asyncService.park(1, new Car("KA-01-HH-1234", "White")).get();
+			fail("parking lot does not exist");
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof ParkingException);
+			assertEquals(ErrorCode.PARKING_NOT_EXIST_ERROR.getMessage(), e.getCause().getMessage());
+		}
+	}
+	
+	@Test
+	public void concurrentRequests() throws Exception
+	{
+		asyncService.createParkingLot(Arrays.asList(10, 10, 10)).get();
+		List<CompletableFuture<ParkingTicket>> tickets = new ArrayList<>();
+		for (int i = 0; i < 35; i++)
+			tickets.add(asyncService.park(new Car("KA-01-HH-" + i, i % 2 == 0 ? "White" : "Black")));
+		CompletableFuture.allOf(tickets.toArray(new CompletableFuture[0])).get();
+		Set<String> slots = new HashSet<>();
+		int full = 0;
+		for (CompletableFuture<ParkingTicket> ticket : tickets)
+		{
+			if (ticket.get().getSlot() == Constants.NOT_AVAILABLE)
+				full++;
+			else
+				assertTrue(slots.add(ticket.get().getLevel() + "/" + ticket.get().getSlot()));
+		}
+		assertEquals(5, full);
+		assertEquals(30, slots.size());
+		assertEquals(0, asyncService.getAvailableSlotsCount(2).get().intValue());
+		
+		// the parks run concurrently, so any five of the cars may have found the
+		// lot full
+		int parked = 0;
+		while (tickets.get(parked).get().getSlot() == Constants.NOT_AVAILABLE)
+			parked++;
+		ParkingTicket ticket = tickets.get(parked).get();
+		String registrationNo = "KA-01-HH-" + parked;
+		assertEquals(Constants.VEHICLE_ALREADY_EXIST,
+				asyncService.park(new Car(registrationNo, "White")).get().getSlot());
+		assertEquals(ticket.getSlot(),
+				asyncService.getSlotNoFromRegistrationNo(ticket.getLevel(), registrationNo).get().intValue());
+		assertTrue(asyncService.unPark(ticket.getLevel(), ticket.getSlot()).get());
+		assertFalse(asyncService.unPark(ticket.getLevel(), ticket.getSlot()).get());
+		assertEquals(9, asyncService.getStatus(ticket.getLevel()).get().size());
+		assertEquals(Constants.NOT_FOUND,
+				asyncService.getSlotNoFromRegistrationNo(ticket.getLevel(), registrationNo).get().intValue());
+	}
+}
@@ -0,0 +1,282 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ObjIntConsumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.dao.ParkingDataManager;
+import io.gojek.parkinglot.metrics.ParkingMetrics.Outcome;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.Vehicle;
+import io.gojek.parkinglot.output.ResultWriter;
+import io.gojek.parkinglot.service.ParkingService;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class ParkingServiceImplConcurrencyTest
+{
+	private final CountDownLatch	parkingOnLevel1	= new CountDownLatch(1);
+	private final CountDownLatch	releaseLevel1	= new CountDownLatch(1);
+	private final CountDownLatch	readingLevel2	= new CountDownLatch(1);
+	private final CountDownLatch	releaseRead		= new CountDownLatch(1);
+	private PrintStream				out;
+	private ExecutorService			executor;
+	
+	@Before
+	public void init()
+	{
+		out = System.out;
+		System.setOut(new PrintStream(new ByteArrayOutputStream()));
+		executor = Executors.newFixedThreadPool(3);
+	}
+	
+	@After
+	public void cleanUp()
+	{
+		releaseLevel1.countDown();
+		releaseRead.countDown();
+		executor.shutdownNow();
+		System.setOut(out);
+	}
+	
+	@Test
+	public void levelsProgressIndependently() throws Exception
+	{
+		ParkingService service = new ParkingServiceImpl(new BlockingDataManager());
+		Future<Optional<Integer>> level1Park = executor
+				.submit(() -> service.park(1, new Car("KA-01-HH-1234", "White")));
+		assertTrue(parkingOnLevel1.await(5, TimeUnit.SECONDS));
+		
+		// level 1 write lock is held, level 2 must still be served
+		Future<Optional<Integer>> level2Park = executor
+				.submit(() -> service.park(2, new Car("KA-01-HH-9999", "White")));
+		assertEquals(Optional.of(2), level2Park.get(5, TimeUnit.SECONDS));
+		Future<Optional<Integer>> level2Count = executor.submit(() -> service.getAvailableSlotsCount(2));
+		assertEquals(Optional.of(2), level2Count.get(5, TimeUnit.SECONDS));
+		
+		// while level 1 readers wait for the writer
+		Future<Optional<Integer>> level1Count = executor.submit(() -> service.getAvailableSlotsCount(1));
+		try
+		{
+			level1Count.get(200, TimeUnit.MILLISECONDS);
+			throw new AssertionError("level 1 read should wait for the level 1 park");
+		}
+		catch (TimeoutException e)
+		{
+		}
+		releaseLevel1.countDown();
+		assertEquals(Optional.of(1), level1Park.get(5, TimeUnit.SECONDS));
+		assertEquals(Optional.of(1), level1Count.get(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void readersDoNotHoldUpParks() throws Exception
+	{
+		ParkingServiceImpl service = new ParkingServiceImpl(new BlockingDataManager());
+		Future<Integer> level2Find = executor.submit(() -> service.findSlotNoForRegistrationNo(2, "KA-01-HH-9999"));
+		assertTrue(readingLevel2.await(5, TimeUnit.SECONDS));
+		
+		// the lookup is in progress on level 2, a park there must still be served
+		Future<Optional<Integer>> level2Park = executor
+				.submit(() -> service.park(2, new Car("KA-01-HH-9999", "White")));
+		assertEquals(Optional.of(2), level2Park.get(5, TimeUnit.SECONDS));
+		
+		// and the lookup it overlapped is read again
+		releaseRead.countDown();
+		assertEquals(Integer.valueOf(2), level2Find.get(5, TimeUnit.SECONDS));
+		assertEquals(1, service.getMetrics().getCount(Outcome.READ_RETRY));
+	}
+	
+	@Test
+	public void statusPageIsOneSnapshot() throws Exception
+	{
+		// the level fits in one status page
+		ParkingServiceImpl service = new ParkingServiceImpl();
+		service.createParkingLot(1, 1000);
+		for (int i = 1; i < 1000; i++)
+			service.parkCar(1, new Car("KA-" + i, "White"));
+		int[] rows = new int[1];
+		service.setResultWriter(new ResultWriter()
+		{
+			@Override
+			public void write(String line)
+			{
+				if (Character.isDigit(line.charAt(0)))
+					rows[0]++;
+			}
+			
+			@Override
+			public void flush()
+			{
+			}
+		});
+		// KA-1 leaves slot 1 only while KA-MOVER is on slot 1000, so every
+		// state of the level has at least 999 vehicles
+		Future<?> mover = executor.submit(() -> {
+			while (!Thread.currentThread().isInterrupted())
+			{
+				service.parkCar(1, new Car("KA-MOVER", "Black"));
+				service.leaveCar(1, 1);
+				service.parkCar(1, new Car("KA-1", "White"));
+				service.leaveCar(1, 1000);
+			}
+			return null;
+		});
+		try
+		{
+			for (int i = 0; i < 200; i++)
+			{
+				rows[0] = 0;
+				service.getStatus(1);
+				assertTrue(String.valueOf(rows[0]), rows[0] >= 999);
+			}
+		}
+		finally
+		{
+			mover.cancel(true);
+		}
+	}
+	
+	/**
+	 * Parks on level 1 and registration lookups on level 2 block until
+	 * released, every other call returns the level number
+	 */
+	private class BlockingDataManager implements ParkingDataManager<Vehicle>
+	{
+		@Override
+		public List<Integer> getLevels()
+		{
+			return Arrays.asList(1, 2);
+		}
+		
+		@Override
+		public int parkCar(int level, Vehicle vehicle)
+		{
+			if (level == 1)
+			{
+				parkingOnLevel1.countDown();
+				try
+				{
+					releaseLevel1.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+			return level;
+		}
+		
+		@Override
+		public Vehicle removeCar(int level, int slotNumber)
+		{
+			return new Car("KA-01-HH-1234", "White");
+		}
+		
+		@Override
+		public boolean restoreCar(int level, int slotNumber, Vehicle vehicle)
+		{
+			return true;
+		}
+		
+		@Override
+		public void forEachCar(int level, ObjIntConsumer<Vehicle> action)
+		{
+		}
+		
+		@Override
+		public int forEachCar(int level, int fromSlot, int limit, ObjIntConsumer<Vehicle> action)
+		{
+			return Constants.NOT_FOUND;
+		}
+		
+		@Override
+		public int getColorCount(int level, String color)
+		{
+			return 0;
+		}
+		
+		@Override
+		public Map<String, Integer> getColorCounts(int level)
+		{
+			return Collections.emptyMap();
+		}
+		
+		@Override
+		public int getCapacity(int level)
+		{
+			return level;
+		}
+		
+		@Override
+		public List<String> getStatus(int level)
+		{
+			return Collections.emptyList();
+		}
+		
+		@Override
+		public List<String> getRegNumberForColor(int level, String color)
+		{
+			return Collections.emptyList();
+		}
+		
+		@Override
+		public List<Integer> getSlotNumbersFromColor(int level, String colour)
+		{
+			return Collections.emptyList();
+		}
+		
+		@Override
+		public int getSlotNoFromRegistrationNo(int level, String registrationNo)
+		{
+			if (level == 2)
+			{
+				readingLevel2.countDown();
+				try
+				{
+					releaseRead.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+			return level;
+		}
+		
+		@Override
+		public int getAvailableSlotsCount(int level)
+		{
+			return level;
+		}
+		
+		@Override
+		public void doCleanup()
+		{
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/**
+ * 
+ */
+package io.gojek.parkinglot.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.gojek.parkinglot.constants.Constants;
+import io.gojek.parkinglot.exception.ErrorCode;
+import io.gojek.parkinglot.exception.ParkingException;
+import io.gojek.parkinglot.model.Car;
+import io.gojek.parkinglot.model.Vehicle;
+import io.gojek.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * @author vaibhav
+ *
+ */
+public class WriteAheadLogTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void recoverConcurrentMutations() throws Exception
+	{
+		Path file = folder.newFolder().toPath();
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		try (WriteAheadLog log = new WriteAheadLog(file, true))
+		{
+			parkingService.recover(log);
+			parkingService.createParkingLot(Arrays.asList(1, 2, 3), Arrays.asList(40, 40, 40));
+			ExecutorService executor = Executors.newFixedThreadPool(6);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 6; thread++)
+			{
+				int gate = thread;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 30; i++)
+					{
+						int level = 1 + (gate + i) % 3;
+						int slot = parkingService.parkCar(level, new Car("KA-0" + gate + "-HH-" + i, "White"));
+						if (i % 3 == 0 && slot > 0)
+							parkingService.leaveCar(level, slot);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+			executor.shutdown();
+			List<Vehicle> batch = Arrays.asList(new Car("KA-09-HH-1", "Red"), new Car("KA-09-HH-2", "Blue"));
+			parkingService.parkCars(2, batch);
+			parkingService.leaveCars(3, new int[] { 1, 2 });
+		}
+		ParkingServiceImpl recovered = new ParkingServiceImpl();
+		try (WriteAheadLog log = new WriteAheadLog(file, true))
+		{
+			recovered.recover(log);
+			assertSameLot(parkingService, recovered);
+		}
+	}
+	
+	@Test
+	public void ignoreTornRecord() throws Exception
+	{
+		Path file = folder.newFolder().toPath();
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		try (WriteAheadLog log = new WriteAheadLog(file, false))
+		{
+			parkingService.recover(log);
+			parkingService.createParkingLot(Arrays.asList(1), Arrays.asList(6));
+			parkingService.parkCar(1, new Car("KA-01-HH-1234", "White"));
+			parkingService.parkCar(1, new Car("KA-01-HH-9999", "Black"));
+		}
+		Path segment = file.resolve("00000000000000000000.log");
+		long size = Files.size(segment);
+		// half of a record written when the process died
+		Files.write(segment, new byte[] { 0, 0, 0, 20, 1, 2, 3 }, StandardOpenOption.APPEND);
+		ParkingServiceImpl recovered = new ParkingServiceImpl();
+		try (WriteAheadLog log = new WriteAheadLog(file, true))
+		{
+			assertEquals(size, Files.size(segment));
+			recovered.recover(log);
+			assertTrue(recovered.leaveCar(1, 1));
+			assertEquals(1, recovered.parkCar(1, new Car("KA-01-P-333", "White")));
+		}
+		assertEquals(Arrays.asList("1\t\tKA-01-P-333\t\tWhite", "2\t\tKA-01-HH-9999\t\tBlack"),
+				recover(file, false).findStatus(1));
+	}
+	
+	@Test
+	public void checkpointWhileParking() throws Exception
+	{
+		Path directory = folder.newFolder().toPath();
+		SnapshotStore snapshots = new SnapshotStore(directory);
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		try (WriteAheadLog log = new WriteAheadLog(directory, false))
+		{
+			parkingService.recover(snapshots, log);
+			parkingService.createParkingLot(Arrays.asList(1, 2, 3), Arrays.asList(500, 500, 500));
+			ExecutorService executor = Executors.newFixedThreadPool(3);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 3; thread++)
+			{
+				int level = thread + 1;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 2000; i++)
+					{
+						int slot = parkingService.parkCar(level, new Car("KA-0" + level + "-HH-" + i % 700, "White"));
+						if (i % 3 == 0 && slot > 0)
+							parkingService.leaveCar(level, slot);
+					}
+					return null;
+				}));
+			}
+			// snapshots taken while the levels change
+			for (int i = 0; i < 5; i++)
+				parkingService.checkpoint(snapshots);
+			for (Future<?> future : futures)
+				future.get();
+			executor.shutdown();
+		}
+		assertEquals(1, Files.list(directory).filter(file -> file.toString().endsWith(".snapshot")).count());
+		ParkingServiceImpl recovered = new ParkingServiceImpl();
+		try (WriteAheadLog log = new WriteAheadLog(directory, true))
+		{
+			recovered.recover(new SnapshotStore(directory), log);
+			assertSameLot(parkingService, recovered);
+		}
+	}
+	
+	@Test
+	public void undoMutationsThatAreNotLogged() throws Exception
+	{
+		Path file = folder.newFolder().toPath();
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		char[] longValue = new char[40000];
+		Arrays.fill(longValue, 'A');
+		String registrationNo = new String(longValue);
+		try (WriteAheadLog log = new WriteAheadLog(file, true))
+		{
+			parkingService.recover(log);
+			parkingService.createParkingLot(Arrays.asList(1), Arrays.asList(6));
+			// longer than a signed short
+			assertEquals(1, parkingService.parkCar(1, new Car(registrationNo, "White")));
+			try
+			{
+				parkingService.parkCar(1, new Car(registrationNo + registrationNo, "White"));
+				throw new AssertionError("the registration number is too long for the log");
+			}
+			catch (ParkingException e)
+			{
+				assertEquals(Optional.of(5), parkingService.getAvailableSlotsCount(1));
+			}
+			parkingService.parkCar(1, new Car("KA-01-HH-9999", "Black"));
+		}
+		// the log is closed, the leave can not be logged
+		try
+		{
+			parkingService.leaveCar(1, 2);
+			throw new AssertionError("the log is closed");
+		}
+		catch (ParkingException e)
+		{
+			assertEquals(2, parkingService.findSlotNoForRegistrationNo(1, "KA-01-HH-9999"));
+		}
+		assertEquals(Arrays.asList("1\t\t" + registrationNo + "\t\tWhite", "2\t\tKA-01-HH-9999\t\tBlack"),
+				recover(file, false).findStatus(1));
+	}
+	
+	@Test
+	public void refuseMutationsAfterFailedForce() throws Exception
+	{
+		Path file = folder.newFolder().toPath();
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		AtomicBoolean failing = new AtomicBoolean();
+		try (WriteAheadLog log = new WriteAheadLog(file, true)
+		{
+			@Override
+			public void awaitDurable(long lsn) throws IOException
+			{
+				if (failing.get())
+					throw new IOException("No space left on device");
+				super.awaitDurable(lsn);
+			}
+		})
+		{
+			parkingService.recover(log);
+			parkingService.createParkingLot(Arrays.asList(1), Arrays.asList(6));
+			assertEquals(1, parkingService.parkCar(1, new Car("KA-01-HH-1234", "White")));
+			failing.set(true);
+			try
+			{
+				parkingService.parkCar(1, new Car("KA-01-HH-9999", "Black"));
+				throw new AssertionError("the park is not durable");
+			}
+			catch (ParkingException e)
+			{
+				assertEquals(ErrorCode.PROCESSING_ERROR.getMessage(), e.getMessage());
+			}
+			// appends work again, the lot still refuses to build on the failed park
+			failing.set(false);
+			try
+			{
+				parkingService.parkCar(1, new Car("KA-01-HH-7777", "White"));
+				throw new AssertionError("the lot has failed");
+			}
+			catch (ParkingException e)
+			{
+				assertEquals(ErrorCode.PROCESSING_ERROR.getMessage(), e.getMessage());
+			}
+			try
+			{
+				parkingService.leaveCar(1, 1);
+				throw new AssertionError("the lot has failed");
+			}
+			catch (ParkingException e)
+			{
+				assertEquals(ErrorCode.PROCESSING_ERROR.getMessage(), e.getMessage());
+			}
+			assertEquals(1, parkingService.findSlotNoForRegistrationNo(1, "KA-01-HH-1234"));
+			assertEquals(Constants.NOT_FOUND, parkingService.findSlotNoForRegistrationNo(1, "KA-01-HH-7777"));
+		}
+		assertEquals(Arrays.asList("1\t\tKA-01-HH-1234\t\tWhite", "2\t\tKA-01-HH-9999\t\tBlack"),
+				recover(file, false).findStatus(1));
+	}
+	
+	private ParkingServiceImpl recover(Path file, boolean synchronous) throws Exception
+	{
+		ParkingServiceImpl parkingService = new ParkingServiceImpl();
+		try (WriteAheadLog log = new WriteAheadLog(file, synchronous))
+		{
+			parkingService.recover(log);
+		}
+		return parkingService;
+	}
+	
+	private void assertSameLot(ParkingServiceImpl expected, ParkingServiceImpl actual) throws Exception
+	{
+		for (int level = 1; level <= 3; level++)
+		{
+			assertEquals(expected.findStatus(level), actual.findStatus(level));
+			assertEquals(expected.getAvailableSlotsCount(level), actual.getAvailableSlotsCount(level));
+		}
+		// freed slots are given out again after recovery, nearest first
+		int lowestFree = 1;
+		for (String row : expected.findStatus(1))
+		{
+			if (!row.startsWith(lowestFree + "\t"))
+				break;
+			lowestFree++;
+		}
+		if (lowestFree > expected.getAvailableSlotsCount(1).get() + expected.findStatus(1).size())
+			lowestFree = Constants.NOT_AVAILABLE;
+		assertEquals(lowestFree, actual.parkCar(1, new Car("KA-10-HH-1", "White")));
+	}
+}